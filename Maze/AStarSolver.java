@@ -0,0 +1,92 @@
+/**
+* AStarSolver searches outward from the start square in order of distance
+* travelled plus Manhattan distance to the finish. The Manhattan distance
+* never overestimates the remaining distance, so the path returned is a
+* shortest one, usually found after looking at far fewer squares than BFS.
+* Its working arrays and heap are in a borrowed SolveScratch, so one
+* solver can be shared by any number of threads.
+*/
+public class AStarSolver implements Solver {
+    private SolveListener listener;
+
+    public void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    public int[] solve(MazeGrid grid, int start, int finish) {
+        try (SolveScratch scratch = SolveScratch.begin(grid.size())) {
+            return search(grid, start, finish, scratch);
+        }
+    }
+
+    private int[] search(MazeGrid grid, int start, int finish, SolveScratch scratch) {
+        int numColumns = grid.getNumColumns();
+        int finishRow = grid.row(finish);
+        int finishColumn = grid.column(finish);
+
+        // A square is reached once its stamp is the epoch, and closed once
+        // its mark is
+        int[] reached = scratch.getStamps();
+        int[] closed = scratch.getMarks();
+        int epoch = scratch.getEpoch();
+        int[] parent = scratch.getParents();
+        int[] distance = scratch.getDistances();
+
+        // Squares by f = distance travelled + estimate; a square may be
+        // queued more than once, stale copies are skipped when popped
+        LongHeap heap = scratch.getHeap();
+        long pushes = 1;
+        long pops = 0;
+        long visited = 1;
+        int maxHeap = 1;
+        reached[start] = epoch;
+        parent[start] = start;
+        distance[start] = 0;
+        heap.push(estimate(start, numColumns, finishRow, finishColumn), start);
+        while (!heap.isEmpty()) {
+            int cur = heap.pop();
+            pops++;
+            if (closed[cur] == epoch) {
+                continue;
+            }
+            if (cur == finish) {
+                report(visited, pushes, pops, maxHeap);
+                return Solver.tracePath(parent, start, finish);
+            }
+            closed[cur] = epoch;
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(cur, direction);
+                if (next < 0 || closed[next] == epoch) {
+                    continue;
+                }
+                int nextDistance = distance[cur] + 1;
+                if (reached[next] != epoch || nextDistance < distance[next]) {
+                    if (reached[next] != epoch) {
+                        reached[next] = epoch;
+                        visited++;
+                    }
+                    parent[next] = cur;
+                    distance[next] = nextDistance;
+                    heap.push(nextDistance + estimate(next, numColumns, finishRow, finishColumn), next);
+                    pushes++;
+                    maxHeap = Math.max(maxHeap, heap.size());
+                }
+            }
+        }
+        report(visited, pushes, pops, maxHeap);
+        return new int[0];
+    }
+
+    private void report(long visited, long pushes, long pops, int maxHeap) {
+        if (listener != null) {
+            listener.solveFinished("astar", visited, pushes, pops, maxHeap);
+        }
+    }
+
+    /**
+     * Returns the Manhattan distance from the given square to the finish.
+     */
+    private static int estimate(int square, int numColumns, int finishRow, int finishColumn) {
+        return Math.abs(square / numColumns - finishRow) + Math.abs(square % numColumns - finishColumn);
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.Arrays;
+
+/**
+* BatchSolver answers many start/finish queries against one MazeGrid,
+* sharing work between them.
+*
+* If the maze is perfect (every square reachable and exactly one route
+* between any two squares), the maze is a tree: it is rooted once, and each
+* query then climbs from both ends to their lowest common ancestor, costing
+* time proportional to the length of the answer. Otherwise the queries are
+* grouped by start square and one breadth-first search per distinct start
+* answers every query sharing it, stopping as soon as all of their finishes
+* are found. If a ConnectivityIndex is supplied, queries whose squares are
+* not connected are answered from it without searching.
+*
+* A BatchSolver may be used by several threads at once: the rooted tree is
+* built once under a lock, and each search works in its own borrowed
+* SolveScratch.
+*/
+public class BatchSolver {
+    private final MazeGrid grid;
+
+    // Component labels of the grid's squares, or null if there is no index
+    private final ConnectivityIndex index;
+
+    // Whether the grid has been checked for being a perfect maze yet, and
+    // the rooted spanning tree if it is one; written once by isPerfect()
+    private boolean checkedPerfect;
+    private int[] treeParent;
+    private int[] treeDepth;
+
+    /**
+     * Creates a batch solver for the given grid. Nothing is computed until
+     * the first batch is solved.
+     */
+    public BatchSolver(MazeGrid grid) {
+        this(grid, null);
+    }
+
+    /**
+     * Creates a batch solver for the given grid that uses index (which may
+     * be null) to skip queries that have no answer.
+     */
+    public BatchSolver(MazeGrid grid, ConnectivityIndex index) {
+        this.grid = grid;
+        this.index = index;
+    }
+
+    /**
+     * Finds a shortest path for each query.
+     * @param starts the start square index of each query
+     * @param finishes the finish square index of each query
+     * @return for each query, the indices of the squares on the path from
+     * start to finish, or an empty array if there is no path
+     */
+    public int[][] solve(int[] starts, int[] finishes) {
+        int[][] paths = new int[starts.length][];
+        if (isPerfect()) {
+            for (int q = 0; q < starts.length; q++) {
+                paths[q] = treePath(starts[q], finishes[q]);
+            }
+            return paths;
+        }
+
+        // Sort query numbers by start square so equal starts are adjacent
+        long[] order = new long[starts.length];
+        for (int q = 0; q < starts.length; q++) {
+            order[q] = ((long) starts[q] << 32) | q;
+        }
+        Arrays.sort(order);
+
+        int first = 0;
+        while (first < order.length) {
+            int start = (int) (order[first] >>> 32);
+            int last = first;
+            while (last + 1 < order.length && (int) (order[last + 1] >>> 32) == start) {
+                last++;
+            }
+            try (SolveScratch scratch = searchFrom(start, order, first, last, finishes)) {
+                for (int i = first; i <= last; i++) {
+                    int q = (int) order[i];
+                    if (scratch.getStamps()[finishes[q]] == scratch.getEpoch()) {
+                        paths[q] = Solver.tracePath(scratch.getParents(), start, finishes[q]);
+                    } else {
+                        paths[q] = new int[0];
+                    }
+                }
+            }
+            first = last + 1;
+        }
+        return paths;
+    }
+
+    /**
+     * Finds the length of a shortest path for each query, counted in steps
+     * between squares, or -1 for queries with no path.
+     */
+    public int[] distances(int[] starts, int[] finishes) {
+        int[] distances = new int[starts.length];
+        if (isPerfect()) {
+            for (int q = 0; q < starts.length; q++) {
+                int lca = lowestCommonAncestor(starts[q], finishes[q]);
+                distances[q] = treeDepth[starts[q]] + treeDepth[finishes[q]] - 2 * treeDepth[lca];
+            }
+            return distances;
+        }
+        int[][] paths = solve(starts, finishes);
+        for (int q = 0; q < paths.length; q++) {
+            distances[q] = paths[q].length - 1;
+        }
+        return distances;
+    }
+
+    /**
+     * Returns true if the grid is connected and has no loops. The first call
+     * also roots the spanning tree used to answer queries.
+     */
+    public synchronized boolean isPerfect() {
+        if (checkedPerfect) {
+            return treeParent != null;
+        }
+        checkedPerfect = true;
+        int n = grid.size();
+        if (n == 0) {
+            return false;
+        }
+        long openWalls = 0;
+        for (int square = 0; square < n; square++) {
+            if (grid.neighbor(square, MazeGrid.DOWN) >= 0) {
+                openWalls++;
+            }
+            if (grid.neighbor(square, MazeGrid.RIGHT) >= 0) {
+                openWalls++;
+            }
+        }
+        if (openWalls != n - 1) {
+            return false;
+        }
+
+        int[] parents = new int[n];
+        int[] depths = new int[n];
+        Arrays.fill(parents, -1);
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        parents[0] = 0;
+        order[tail++] = 0;
+        while (head < tail) {
+            int cur = order[head++];
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(cur, direction);
+                if (next >= 0 && parents[next] < 0) {
+                    parents[next] = cur;
+                    depths[next] = depths[cur] + 1;
+                    order[tail++] = next;
+                }
+            }
+        }
+        if (tail != n) {
+            return false;
+        }
+        treeParent = parents;
+        treeDepth = depths;
+        return true;
+    }
+
+    /**
+     * Returns the square where the tree paths from a and b to the root meet.
+     */
+    private int lowestCommonAncestor(int a, int b) {
+        while (treeDepth[a] > treeDepth[b]) {
+            a = treeParent[a];
+        }
+        while (treeDepth[b] > treeDepth[a]) {
+            b = treeParent[b];
+        }
+        while (a != b) {
+            a = treeParent[a];
+            b = treeParent[b];
+        }
+        return a;
+    }
+
+    /**
+     * Returns the unique path from start to finish in the rooted tree.
+     */
+    private int[] treePath(int start, int finish) {
+        int lca = lowestCommonAncestor(start, finish);
+        int up = treeDepth[start] - treeDepth[lca];
+        int down = treeDepth[finish] - treeDepth[lca];
+        int[] path = new int[up + down + 1];
+        int cur = start;
+        for (int i = 0; i <= up; i++) {
+            path[i] = cur;
+            cur = treeParent[cur];
+        }
+        cur = finish;
+        for (int i = path.length - 1; i > up; i--) {
+            path[i] = cur;
+            cur = treeParent[cur];
+        }
+        return path;
+    }
+
+    /**
+     * Runs a breadth-first search from start until the finishes of the
+     * queries order[first..last] have all been reached (or, with an index,
+     * those of them that can be reached).
+     * @return a borrowed scratch, which the caller must close, in which
+     * every square reached is stamped with the epoch and has a parent link
+     * leading back to start
+     */
+    private SolveScratch searchFrom(int start, long[] order, int first, int last, int[] finishes) {
+        SolveScratch scratch = SolveScratch.begin(grid.size());
+        int[] stamp = scratch.getStamps();
+        int[] targetStamp = scratch.getMarks();
+        int epoch = scratch.getEpoch();
+        int[] parent = scratch.getParents();
+        int[] queue = scratch.getQueue();
+
+        int remaining = 0;
+        for (int i = first; i <= last; i++) {
+            int finish = finishes[(int) order[i]];
+            if (index != null && !index.areConnected(start, finish)) {
+                continue;
+            }
+            if (targetStamp[finish] != epoch) {
+                targetStamp[finish] = epoch;
+                remaining++;
+            }
+        }
+
+        int head = 0;
+        int tail = 0;
+        stamp[start] = epoch;
+        parent[start] = start;
+        queue[tail++] = start;
+        while (head < tail && remaining > 0) {
+            int cur = queue[head++];
+            if (targetStamp[cur] == epoch) {
+                remaining--;
+            }
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(cur, direction);
+                if (next >= 0 && stamp[next] != epoch) {
+                    stamp[next] = epoch;
+                    parent[next] = cur;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return scratch;
+    }
+}
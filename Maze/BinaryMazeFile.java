@@ -0,0 +1,480 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+* BinaryMazeFile reads and writes mazes in a compact binary format, so that
+* loading a maze is little more than copying bytes.
+*
+* The file starts with a 40 byte header: the magic bytes "MAZB", a format
+* version, the number of columns and rows, the start column and row, the
+* finish column and row, the number of rows per band and a flags word (bit 0
+* set if bands are compressed). A table with the offset (8 bytes) and stored
+* length (4 bytes) of every band follows, then the bands themselves. Each row
+* takes (numColumns + 3) / 4 bytes, four squares per byte with the two wall
+* bits of column c at bit 2 * (c % 4). Compressed bands are deflated.
+* All numbers are big-endian.
+*
+* Because every band can be found through the table, and every row of an
+* uncompressed band through its offset, readRegion() can load a rectangle of
+* a maze without reading the rest of the file.
+*/
+public class BinaryMazeFile implements AutoCloseable {
+    // "MAZB"
+    private static final int MAGIC = 0x4D415A42;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int TABLE_ENTRY_SIZE = 12;
+    private static final int COMPRESSED = 1;
+
+    // Rows per band when the caller does not say
+    public static final int DEFAULT_BAND_ROWS = 64;
+
+    private final FileChannel channel;
+
+    private int numColumns;
+    private int numRows;
+    private int startColumn;
+    private int startRow;
+    private int finishColumn;
+    private int finishRow;
+    private int bandRows;
+    private boolean compressed;
+    private long[] bandOffsets;
+    private int[] bandLengths;
+
+    /**
+     * Opens a binary maze file and reads its header and band table.
+     * @throws java.nio.file.NoSuchFileException if there is no such file
+     * @throws MazeFormatException if the file is not a binary maze file
+     */
+    public BinaryMazeFile(String fileName) throws IOException, MazeFormatException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            readHeader();
+        } catch (IOException | MazeFormatException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if the named file starts with the binary maze magic bytes.
+     */
+    public static boolean isBinaryMazeFile(String fileName) throws IOException {
+        try (FileChannel file = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && file.read(magic) >= 0) {
+                // keep reading until the magic is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    private void readHeader() throws IOException, MazeFormatException {
+        ByteBuffer header = readFully(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new MazeFormatException("Not a binary maze file.");
+        }
+        if (header.getInt() != VERSION) {
+            throw new MazeFormatException("Unsupported binary maze file version.");
+        }
+        numColumns = header.getInt();
+        numRows = header.getInt();
+        startColumn = header.getInt();
+        startRow = header.getInt();
+        finishColumn = header.getInt();
+        finishRow = header.getInt();
+        bandRows = header.getInt();
+        compressed = (header.getInt() & COMPRESSED) != 0;
+        if (numColumns < 0 || numRows < 0 || bandRows <= 0) {
+            throw new MazeFormatException("Binary maze file header is corrupt.");
+        }
+
+        int numBands = (int) (((long) numRows + bandRows - 1) / bandRows);
+        ByteBuffer table = readFully(HEADER_SIZE, numBands * TABLE_ENTRY_SIZE);
+        bandOffsets = new long[numBands];
+        bandLengths = new int[numBands];
+        for (int band = 0; band < numBands; band++) {
+            bandOffsets[band] = table.getLong();
+            bandLengths[band] = table.getInt();
+        }
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getFinishColumn() {
+        return finishColumn;
+    }
+
+    public int getFinishRow() {
+        return finishRow;
+    }
+
+    /**
+     * Returns the number of rows stored together in each band of the file.
+     */
+    public int getBandRows() {
+        return bandRows;
+    }
+
+    /**
+     * Reads the whole maze into a grid.
+     */
+    public MazeGrid readGrid() throws IOException, MazeFormatException {
+        return readRegion(0, 0, numRows, numColumns);
+    }
+
+    /**
+     * Reads the rectangle of squares with its top left corner at (row, col)
+     * and the given size into a grid of that size. Only the bands that
+     * overlap the rectangle are read, and for uncompressed bands only the
+     * bytes of the rectangle's own rows.
+     */
+    public MazeGrid readRegion(int row, int col, int height, int width)
+            throws IOException, MazeFormatException {
+        if (row < 0 || col < 0 || height < 0 || width < 0
+                || (long) row + height > numRows || (long) col + width > numColumns) {
+            throw new IndexOutOfBoundsException("Region is not inside the maze");
+        }
+        MazeGrid grid = new MazeGrid(height, width);
+        if (grid.size() == 0) {
+            return grid;
+        }
+        int rowBytes = rowBytes(numColumns);
+        int firstByte = col / 4;
+        int spanBytes = (col + width - 1) / 4 - firstByte + 1;
+        // Wide regions read each band's rows in one go; narrow ones read
+        // only their own bytes of each row
+        boolean wholeRows = 2L * width >= numColumns;
+
+        int r = row;
+        while (r < row + height) {
+            int band = r / bandRows;
+            int bandStart = band * bandRows;
+            int bandEnd = Math.min(numRows, bandStart + bandRows);
+            int regionEnd = Math.min(row + height, bandEnd);
+            byte[] data;
+            int dataStart;
+            if (compressed) {
+                data = inflate(readFully(bandOffsets[band], bandLengths[band]), (bandEnd - bandStart) * rowBytes);
+                dataStart = bandStart;
+            } else if (wholeRows) {
+                data = readFully(bandOffsets[band] + (long) (r - bandStart) * rowBytes,
+                        (regionEnd - r) * rowBytes).array();
+                dataStart = r;
+            } else {
+                data = null;
+                dataStart = r;
+            }
+            for (; r < regionEnd; r++) {
+                byte[] packed = data;
+                int rowOffset = (r - dataStart) * rowBytes;
+                if (packed == null) {
+                    packed = readFully(bandOffsets[band] + (long) (r - bandStart) * rowBytes + firstByte,
+                            spanBytes).array();
+                    rowOffset = -firstByte;
+                }
+                int gridRow = grid.index(r - row, 0);
+                for (int c = 0; c < width; c++) {
+                    int square = col + c;
+                    grid.setWalls(gridRow + c, packed[rowOffset + (square >>> 2)] >>> ((square & 3) << 1));
+                }
+            }
+        }
+        return grid;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads length bytes starting at position.
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException, MazeFormatException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new MazeFormatException("Binary maze file is truncated.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] inflate(ByteBuffer data, int size) throws MazeFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.array(), 0, data.remaining());
+            byte[] result = new byte[size];
+            int done = 0;
+            while (done < size && !inflater.finished()) {
+                int n = inflater.inflate(result, done, size - done);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                done += n;
+            }
+            if (done != size) {
+                throw new MazeFormatException("Binary maze file band is corrupt.");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new MazeFormatException("Binary maze file band is corrupt.");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int rowBytes(int numColumns) {
+        return (numColumns + 3) / 4;
+    }
+
+    /**
+     * BandWriter writes a binary maze file one band at a time, so a maze
+     * never has to be in memory all at once to be written. The header and
+     * band table are only written by finish(); a writer closed without
+     * finishing deletes its partial file, so a failed conversion never
+     * leaves something that looks like a complete maze.
+     */
+    private static class BandWriter implements AutoCloseable {
+        private final String fileName;
+        private final FileChannel out;
+        private final int numColumns;
+        private final int numRows;
+        private final int bandRows;
+        private final boolean compress;
+        private final ByteBuffer header;
+        private final ByteBuffer table;
+        private final byte[] band;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] deflated = new byte[0];
+        private long position;
+        private int bandStart;
+        private boolean finished;
+
+        BandWriter(String fileName, int numColumns, int numRows, int startColumn, int startRow,
+                int finishColumn, int finishRow, int bandRows, boolean compress) throws IOException {
+            if (bandRows <= 0) {
+                throw new IllegalArgumentException("Bands need at least one row");
+            }
+            out = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.fileName = fileName;
+            this.numColumns = numColumns;
+            this.numRows = numRows;
+            this.bandRows = bandRows;
+            this.compress = compress;
+            header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numColumns).putInt(numRows)
+                    .putInt(startColumn).putInt(startRow).putInt(finishColumn).putInt(finishRow)
+                    .putInt(bandRows).putInt(compress ? COMPRESSED : 0);
+            header.flip();
+            int numBands = (int) (((long) numRows + bandRows - 1) / bandRows);
+            table = ByteBuffer.allocate(numBands * TABLE_ENTRY_SIZE);
+            band = new byte[bandRows * rowBytes(numColumns)];
+            position = HEADER_SIZE + (long) numBands * TABLE_ENTRY_SIZE;
+        }
+
+        /**
+         * Records the walls of a square. Squares must arrive in row order.
+         */
+        void setWalls(int row, int col, int wallBits) throws IOException {
+            int offset = (row - bandStart) * rowBytes(numColumns) + (col >>> 2);
+            int shift = (col & 3) << 1;
+            band[offset] = (byte) ((band[offset] & ~(3 << shift)) | ((wallBits & 3) << shift));
+            if (col == numColumns - 1 && (row == numRows - 1 || row - bandStart == bandRows - 1)) {
+                writeBand(row - bandStart + 1);
+                bandStart = row + 1;
+            }
+        }
+
+        private void writeBand(int rows) throws IOException {
+            int length = rows * rowBytes(numColumns);
+            ByteBuffer data;
+            if (compress) {
+                deflater.reset();
+                deflater.setInput(band, 0, length);
+                deflater.finish();
+                if (deflated.length < length + 64) {
+                    deflated = new byte[length + length / 8 + 64];
+                }
+                int size = 0;
+                while (!deflater.finished()) {
+                    if (size == deflated.length) {
+                        deflated = Arrays.copyOf(deflated, deflated.length * 2);
+                    }
+                    size += deflater.deflate(deflated, size, deflated.length - size);
+                }
+                data = ByteBuffer.wrap(deflated, 0, size);
+            } else {
+                data = ByteBuffer.wrap(band, 0, length);
+            }
+            table.putLong(position).putInt(data.remaining());
+            while (data.hasRemaining()) {
+                position += out.write(data, position);
+            }
+        }
+
+        /**
+         * Writes the bands not written yet, the band table and the header.
+         * Call this once every square has been set.
+         */
+        void finish() throws IOException {
+            // Mazes without columns never call setWalls, but still have
+            // (empty) bands
+            while (table.hasRemaining()) {
+                writeBand(Math.min(bandRows, numRows - bandStart));
+                bandStart += bandRows;
+            }
+            table.flip();
+            out.write(header, 0);
+            out.write(table, HEADER_SIZE);
+            finished = true;
+        }
+
+        public void close() throws IOException {
+            try {
+                deflater.end();
+                out.close();
+            } finally {
+                if (!finished) {
+                    Files.deleteIfExists(Paths.get(fileName));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a grid to a binary maze file.
+     */
+    public static void write(MazeGrid grid, int startRow, int startColumn, int finishRow, int finishColumn,
+            String fileName, int bandRows, boolean compress) throws IOException {
+        try (BandWriter writer = new BandWriter(fileName, grid.getNumColumns(), grid.getNumRows(),
+                startColumn, startRow, finishColumn, finishRow, bandRows, compress)) {
+            for (int row = 0; row < grid.getNumRows(); row++) {
+                for (int col = 0; col < grid.getNumColumns(); col++) {
+                    writer.setWalls(row, col, grid.getWalls(grid.index(row, col)));
+                }
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Converts a text maze file to a binary one, one band at a time.
+     */
+    public static void fromText(String textFile, String binaryFile, int bandRows, boolean compress)
+            throws IOException, MazeFormatException {
+        try (MappedMazeLoader loader = new MappedMazeLoader(textFile)) {
+            loader.readHeader();
+            try (BandWriter writer = new BandWriter(binaryFile, loader.getNumColumns(), loader.getNumRows(),
+                    loader.getStartColumn(), loader.getStartRow(), loader.getFinishColumn(),
+                    loader.getFinishRow(), bandRows, compress)) {
+                loader.readSquares((row, col, walls) -> {
+                    try {
+                        writer.setWalls(row, col, walls);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.finish();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Converts a binary maze file to a text one, one band at a time.
+     */
+    public static void toText(String binaryFile, String textFile) throws IOException, MazeFormatException {
+        try (BinaryMazeFile in = new BinaryMazeFile(binaryFile);
+                FileChannel out = FileChannel.open(Paths.get(textFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            String header = in.numColumns + " " + in.numRows + "\n"
+                    + in.startColumn + " " + in.startRow + "\n"
+                    + in.finishColumn + " " + in.finishRow + "\n";
+            writeAll(out, ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer line = ByteBuffer.allocate(in.numColumns + 1);
+            for (int bandStart = 0; bandStart < in.numRows; bandStart += in.bandRows) {
+                int height = Math.min(in.bandRows, in.numRows - bandStart);
+                MazeGrid band = in.readRegion(bandStart, 0, height, in.numColumns);
+                for (int row = 0; row < height; row++) {
+                    line.clear();
+                    for (int col = 0; col < in.numColumns; col++) {
+                        line.put((byte) MazeGrid.descriptorFor(band.getWalls(band.index(row, col))));
+                    }
+                    line.put((byte) '\n');
+                    line.flip();
+                    writeAll(out, line);
+                }
+            }
+        }
+    }
+
+    private static void writeAll(FileChannel out, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    public static void main(String[] args) {
+        boolean toBinary = args.length >= 3 && args[0].equals("--to-binary");
+        boolean toText = args.length == 3 && args[0].equals("--to-text");
+        if (!toBinary && !toText) {
+            System.out.println("Usage: java BinaryMazeFile --to-binary <maze.txt> <maze.mazb> [--compress] [--band=<rows>]");
+            System.out.println("       java BinaryMazeFile --to-text <maze.mazb> <maze.txt>");
+            return;
+        }
+        try {
+            if (toText) {
+                toText(args[1], args[2]);
+                return;
+            }
+            boolean compress = false;
+            int bandRows = DEFAULT_BAND_ROWS;
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].equals("--compress")) {
+                    compress = true;
+                } else if (args[i].startsWith("--band=")) {
+                    bandRows = Integer.parseInt(args[i].substring("--band=".length()));
+                } else {
+                    System.out.println("Invalid argument " + args[i] + ".");
+                    return;
+                }
+            }
+            fromText(args[1], args[2], bandRows, compress);
+        } catch (MazeFormatException e) {
+            System.err.println(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid band size: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Could not convert " + args[1] + ": " + e.getMessage());
+        }
+    }
+}
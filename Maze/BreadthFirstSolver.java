@@ -0,0 +1,61 @@
+/**
+* BreadthFirstSolver explores the maze one distance level at a time from the
+* start square, so the path it returns is always a shortest one. Its working
+* arrays are in a borrowed SolveScratch, so one solver can be shared by
+* any number of threads.
+*/
+public class BreadthFirstSolver implements Solver {
+    private SolveListener listener;
+
+    public void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    public int[] solve(MazeGrid grid, int start, int finish) {
+        try (SolveScratch scratch = SolveScratch.begin(grid.size())) {
+            return search(grid, start, finish, scratch);
+        }
+    }
+
+    private int[] search(MazeGrid grid, int start, int finish, SolveScratch scratch) {
+        int[] stamp = scratch.getStamps();
+        int epoch = scratch.getEpoch();
+        int[] parent = scratch.getParents();
+        // Every square is queued at most once, so the queue never wraps
+        int[] queue = scratch.getQueue();
+        int head = 0;
+        int tail = 0;
+        int maxQueued = 1;
+
+        stamp[start] = epoch;
+        parent[start] = start;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cur = queue[head++];
+            if (cur == finish) {
+                report(tail, head, maxQueued);
+                return Solver.tracePath(parent, start, finish);
+            }
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(cur, direction);
+                if (next >= 0 && stamp[next] != epoch) {
+                    stamp[next] = epoch;
+                    parent[next] = cur;
+                    queue[tail++] = next;
+                }
+            }
+            maxQueued = Math.max(maxQueued, tail - head);
+        }
+        report(tail, head, maxQueued);
+        return new int[0];
+    }
+
+    /**
+     * Reports a solve that queued tail squares and dequeued head of them.
+     */
+    private void report(int tail, int head, int maxQueued) {
+        if (listener != null) {
+            listener.solveFinished("bfs", tail, tail, head, maxQueued);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+* CompressedSolver searches a JunctionGraph instead of the grid itself:
+* dead ends are filled in and corridors collapsed into single weighted
+* edges before Dijkstra's algorithm runs, so the path returned is a shortest
+* one. The graph for the last start and finish is kept, so solving the same
+* maze again only repeats the search. Its solves are reported in graph
+* nodes: the nodes reached and the heap entries pushed and popped.
+*/
+public class CompressedSolver implements Solver {
+    private JunctionGraph graph;
+    private SolveListener listener;
+
+    public void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    public int[] solve(MazeGrid grid, int start, int finish) {
+        if (graph == null || !graph.isFor(grid, start, finish)) {
+            graph = new JunctionGraph(grid, start, finish);
+        }
+        return graph.shortestPath(listener);
+    }
+
+    /**
+     * Returns the junction graph built by the last solve, or null if
+     * nothing has been solved yet.
+     */
+    public JunctionGraph getGraph() {
+        return graph;
+    }
+}
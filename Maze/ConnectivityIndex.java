@@ -0,0 +1,95 @@
+/**
+* ConnectivityIndex labels every square of a MazeGrid with the connected
+* component it belongs to, using union-find over the open walls. Once built,
+* whether two squares are connected (and so whether a maze is solvable) is
+* answered in constant time, without searching.
+*
+* The index describes the grid as it was when the index was built; it must
+* be rebuilt after walls change.
+*/
+public class ConnectivityIndex {
+    // component[square] is the smallest square index in square's component
+    private final int[] component;
+    private final int numComponents;
+
+    /**
+     * Builds the index for the given grid. Takes time roughly proportional
+     * to the number of squares.
+     */
+    public ConnectivityIndex(MazeGrid grid) {
+        int n = grid.size();
+        component = new int[n];
+        for (int square = 0; square < n; square++) {
+            component[square] = square;
+        }
+        int roots = n;
+        for (int square = 0; square < n; square++) {
+            if (union(square, grid.neighbor(square, MazeGrid.DOWN))) {
+                roots--;
+            }
+            if (union(square, grid.neighbor(square, MazeGrid.RIGHT))) {
+                roots--;
+            }
+        }
+        // Flatten every path so each square points straight at its root.
+        // Roots are smaller than the squares below them, so going up in
+        // index order sees every parent flattened before its children.
+        for (int square = 0; square < n; square++) {
+            component[square] = component[component[square]];
+        }
+        numComponents = roots;
+    }
+
+    /**
+     * Joins the components of two squares while the index is being built,
+     * keeping the smaller root so that every square's parent is smaller
+     * than the square itself.
+     * @return true if they were in different components; false if they were
+     * already joined or next is -1
+     */
+    private boolean union(int square, int next) {
+        if (next < 0) {
+            return false;
+        }
+        int a = find(square);
+        int b = find(next);
+        if (a == b) {
+            return false;
+        }
+        component[Math.max(a, b)] = Math.min(a, b);
+        return true;
+    }
+
+    /**
+     * Returns the representative of square's component while the index is
+     * being built, halving the path to it.
+     */
+    private int find(int square) {
+        while (component[square] != square) {
+            component[square] = component[component[square]];
+            square = component[square];
+        }
+        return square;
+    }
+
+    /**
+     * Returns true if there is a route between the two squares.
+     */
+    public boolean areConnected(int a, int b) {
+        return component[a] == component[b];
+    }
+
+    /**
+     * Returns a label shared by exactly the squares connected to square.
+     */
+    public int getComponent(int square) {
+        return component[square];
+    }
+
+    /**
+     * Returns the number of connected components in the grid.
+     */
+    public int getNumComponents() {
+        return numComponents;
+    }
+}
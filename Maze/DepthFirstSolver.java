@@ -0,0 +1,74 @@
+/**
+* DepthFirstSolver walks the maze depth-first, trying UP, DOWN, LEFT and
+* RIGHT in that order, and returns the squares left on its stack when it
+* reaches the finish. It makes no guarantee that the path is a shortest one.
+*
+* Visited squares, the stack and the next direction to try from each square
+* (so no wall is looked at twice) are kept in a borrowed SolveScratch, so
+* one solver can be shared by any number of threads and repeated solves do
+* not have to clear or reallocate anything.
+*/
+public class DepthFirstSolver implements Solver {
+    private SolveListener listener;
+
+    public void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    public int[] solve(MazeGrid grid, int start, int finish) {
+        try (SolveScratch scratch = SolveScratch.begin(grid.size())) {
+            return search(grid, start, finish, scratch);
+        }
+    }
+
+    private int[] search(MazeGrid grid, int start, int finish, SolveScratch scratch) {
+        int[] stamp = scratch.getStamps();
+        int epoch = scratch.getEpoch();
+        // Next direction to try from each square on the stack
+        byte[] nextDirection = scratch.getDirections();
+        IntStack stack = scratch.getStack();
+
+        long pushes = 1;
+        long pops = 0;
+        int maxDepth = 1;
+        stack.push(start);
+        stamp[start] = epoch;
+        nextDirection[start] = MazeGrid.UP;
+        while (!stack.isEmpty()) {
+            int cur = stack.peek();
+            if (cur == finish) {
+                report(pushes, pops, maxDepth);
+                return stack.toArray();
+            }
+            int direction = nextDirection[cur];
+            int next = -1;
+            while (next < 0 && direction <= MazeGrid.RIGHT) {
+                int candidate = grid.neighbor(cur, direction++);
+                if (candidate >= 0 && stamp[candidate] != epoch) {
+                    next = candidate;
+                }
+            }
+            nextDirection[cur] = (byte) direction;
+
+            if (next < 0) {
+                stack.pop();
+                pops++;
+            } else {
+                stack.push(next);
+                pushes++;
+                maxDepth = Math.max(maxDepth, stack.size());
+                stamp[next] = epoch;
+                nextDirection[next] = MazeGrid.UP;
+            }
+        }
+        report(pushes, pops, maxDepth);
+        return new int[0];
+    }
+
+    private void report(long pushes, long pops, int maxDepth) {
+        if (listener != null) {
+            // Every square pushed was visited for the first time
+            listener.solveFinished("dfs", pushes, pushes, pops, maxDepth);
+        }
+    }
+}
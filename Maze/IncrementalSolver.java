@@ -0,0 +1,249 @@
+import java.util.Arrays;
+
+/**
+* IncrementalSolver finds shortest paths with Lifelong Planning A* (LPA*),
+* keeping its search between solves. The first solve costs about as much as
+* AStarSolver. After walls are changed (and reported with wallChanged), the
+* next solve between the same start and finish only revisits squares whose
+* distance from the start the change affected, so small edits are repaired
+* in time proportional to the region they disturb.
+*
+* Each square has g, its distance from the start as last settled, and rhs,
+* the distance its neighbors' g values imply. Squares where the two differ
+* are queued, ordered by the smaller of the two plus the Manhattan distance
+* to the finish, and settled until the finish is settled and nothing queued
+* could improve it.
+*/
+public class IncrementalSolver implements Solver {
+    // Distance of squares that cannot be reached; small enough that adding
+    // one or a Manhattan distance to it cannot overflow a key
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    // The search being kept: its grid, end squares, and the grid's edit
+    // count as of the last edit it was told about
+    private MazeGrid grid;
+    private int start;
+    private int finish;
+    private long editCount;
+
+    private int[] g = new int[0];
+    private int[] rhs = new int[0];
+
+    // Binary min-heap of queued squares and their keys. A square may be
+    // queued more than once; entries whose key is out of date are skipped
+    private long[] heapKey = new long[16];
+    private int[] heapSquare = new int[16];
+    private int heapSize;
+
+    private long numExpanded;
+
+    // Heap traffic of the current solve, for the listener
+    private long numPushes;
+    private long numPops;
+    private int maxHeap;
+    private SolveListener listener;
+
+    public void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    public int[] solve(MazeGrid grid, int start, int finish) {
+        numExpanded = 0;
+        numPushes = 0;
+        numPops = 0;
+        maxHeap = 0;
+        if (grid != this.grid || start != this.start || finish != this.finish
+                || grid.getEditCount() != editCount || g.length != grid.size()) {
+            reset(grid, start, finish);
+        }
+        maxHeap = Math.max(maxHeap, heapSize);
+        computeShortestPath();
+        if (listener != null) {
+            listener.solveFinished("incremental", numExpanded, numPushes, numPops, maxHeap);
+        }
+        if (heapSize > 2 * grid.size() + 16) {
+            compact();
+        }
+        if (g[finish] >= INFINITY) {
+            return new int[0];
+        }
+
+        int[] path = new int[g[finish] + 1];
+        int cur = finish;
+        for (int i = path.length - 1; i > 0; i--) {
+            path[i] = cur;
+            int best = -1;
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(cur, direction);
+                if (next >= 0 && (best < 0 || g[next] < g[best])) {
+                    best = next;
+                }
+            }
+            cur = best;
+        }
+        path[0] = start;
+        return path;
+    }
+
+    /**
+     * Tells the solver that the given wall (TOP_WALL or RIGHT_WALL) of the
+     * given square has just been changed with MazeGrid.setWall. If the solver
+     * misses an edit, its next solve starts again from scratch.
+     */
+    public void wallChanged(MazeGrid grid, int index, int wall) {
+        if (grid != this.grid || grid.getEditCount() != editCount + 1) {
+            return;
+        }
+        editCount++;
+        int numColumns = grid.getNumColumns();
+        updateSquare(index);
+        if (wall == MazeGrid.TOP_WALL && index >= numColumns) {
+            updateSquare(index - numColumns);
+        } else if (wall == MazeGrid.RIGHT_WALL && (index + 1) % numColumns != 0) {
+            updateSquare(index + 1);
+        }
+    }
+
+    /**
+     * Returns the number of squares settled by the last solve.
+     */
+    public long getNumExpanded() {
+        return numExpanded;
+    }
+
+    /**
+     * Throws away the kept search and starts a new one.
+     */
+    private void reset(MazeGrid grid, int start, int finish) {
+        this.grid = grid;
+        this.start = start;
+        this.finish = finish;
+        editCount = grid.getEditCount();
+        if (g.length != grid.size()) {
+            g = new int[grid.size()];
+            rhs = new int[grid.size()];
+        }
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        heapSize = 0;
+        rhs[start] = 0;
+        push(key(start), start);
+    }
+
+    /**
+     * Settles queued squares until the finish has its shortest distance.
+     */
+    private void computeShortestPath() {
+        while (heapSize > 0 && (heapKey[0] < key(finish) || rhs[finish] != g[finish])) {
+            long queuedKey = heapKey[0];
+            int square = pop();
+            if (g[square] == rhs[square] || queuedKey != key(square)) {
+                continue;
+            }
+            numExpanded++;
+            if (g[square] > rhs[square]) {
+                g[square] = rhs[square];
+            } else {
+                g[square] = INFINITY;
+                updateSquare(square);
+            }
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(square, direction);
+                if (next >= 0) {
+                    updateSquare(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes rhs for a square from its open neighbors and queues the
+     * square if it no longer agrees with g.
+     */
+    private void updateSquare(int square) {
+        if (square != start) {
+            int best = INFINITY;
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(square, direction);
+                if (next >= 0 && g[next] + 1 < best) {
+                    best = g[next] + 1;
+                }
+            }
+            rhs[square] = best;
+        }
+        if (g[square] != rhs[square]) {
+            push(key(square), square);
+        }
+    }
+
+    /**
+     * Returns the queue key of a square: the smaller of g and rhs plus the
+     * Manhattan distance to the finish, ties broken by the smaller of g and
+     * rhs alone.
+     */
+    private long key(int square) {
+        int numColumns = grid.getNumColumns();
+        long distance = Math.min(g[square], rhs[square]);
+        long estimate = Math.abs(square / numColumns - finish / numColumns)
+                + Math.abs(square % numColumns - finish % numColumns);
+        return ((distance + estimate) << 31) | distance;
+    }
+
+    /**
+     * Drops out of date entries from the heap so that edits made over a
+     * long time do not make it grow without bound.
+     */
+    private void compact() {
+        long[] keys = Arrays.copyOf(heapKey, heapSize);
+        int[] squares = Arrays.copyOf(heapSquare, heapSize);
+        heapSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (g[squares[i]] != rhs[squares[i]] && keys[i] == key(squares[i])) {
+                push(keys[i], squares[i]);
+            }
+        }
+    }
+
+    private void push(long key, int square) {
+        if (heapSize == heapKey.length) {
+            heapKey = Arrays.copyOf(heapKey, heapKey.length * 2);
+            heapSquare = Arrays.copyOf(heapSquare, heapSquare.length * 2);
+        }
+        int i = heapSize++;
+        while (i > 0 && heapKey[(i - 1) / 2] > key) {
+            heapKey[i] = heapKey[(i - 1) / 2];
+            heapSquare[i] = heapSquare[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heapKey[i] = key;
+        heapSquare[i] = square;
+        numPushes++;
+        maxHeap = Math.max(maxHeap, heapSize);
+    }
+
+    /**
+     * Removes the entry with the smallest key and returns its square.
+     */
+    private int pop() {
+        numPops++;
+        int top = heapSquare[0];
+        long lastKey = heapKey[--heapSize];
+        int lastSquare = heapSquare[heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                child++;
+            }
+            if (heapKey[child] >= lastKey) {
+                break;
+            }
+            heapKey[i] = heapKey[child];
+            heapSquare[i] = heapSquare[child];
+            i = child;
+        }
+        heapKey[i] = lastKey;
+        heapSquare[i] = lastSquare;
+        return top;
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+* IntStack is a stack of ints kept in a growable int array. It has the same
+* operations as Stack, but pushing never allocates an object per item, so
+* solvers use it to hold square indices.
+*/
+public class IntStack {
+    private int[] items;
+    private int size;
+
+    /**
+     * Creates an empty stack.
+     */
+    public IntStack() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty stack with room for capacity items before it has to
+     * grow.
+     */
+    public IntStack(int capacity) {
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds an item to the top of this stack.
+     * @param item The item to add.
+     */
+    public void push(int item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+        }
+        items[size++] = item;
+    }
+
+    /**
+     * Removes and returns the item from the top of this stack.
+     * @return the item at the top of the stack. Throws an empty
+     * stack exception if empty.
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return items[--size];
+    }
+
+    /**
+     * Returns the item on top of the stack, without removing it.
+     * @return the item at the top of the stack. Throws an empty
+     * stack exception if empty.
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return items[size - 1];
+    }
+
+    /**
+     * Returns whether the stack is empty.
+     * @return true if the stack is empty; false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all items from the stack.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the number of items on the stack.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the items from the bottom of the stack to the top.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+}
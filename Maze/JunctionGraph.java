@@ -0,0 +1,278 @@
+import java.util.Arrays;
+
+/**
+* JunctionGraph is a smaller version of a MazeGrid for solving between one
+* start and one finish square.
+*
+* It is built in two passes. Dead-end filling first repeatedly fills in
+* squares with only one open neighbor (other than the start and finish),
+* since such squares cannot be on any route between them; in a perfect maze
+* only the solution is left. The squares that remain are then compressed:
+* every junction, the start and the finish becomes a node, and every
+* corridor of squares between two nodes becomes a single edge weighted by
+* its length. Shortest paths are found on this graph with Dijkstra's
+* algorithm and expanded back into every square along the way.
+*/
+public class JunctionGraph {
+    private final MazeGrid grid;
+    private final int start;
+    private final int finish;
+    private final long editCount;
+
+    // Open neighbors of each square that are not filled, or -1 if the
+    // square itself has been filled
+    private final byte[] degree;
+    private int numFilled;
+
+    // Node number of each square, or -1 if it is not a node
+    private final int[] nodeOf;
+    private final int[] squareOf;
+
+    // Edges leaving node u are edgeStart[u] to edgeStart[u + 1] - 1. Each
+    // records the node it leads to, the length of its corridor and the
+    // direction the corridor leaves u in, so it can be walked again
+    private final int[] edgeStart;
+    private final int[] edgeTarget;
+    private final int[] edgeWeight;
+    private final byte[] edgeDirection;
+
+    // Dijkstra's queue, kept so repeated searches reuse its array
+    private final LongHeap heap = new LongHeap();
+
+    /**
+     * Builds the junction graph of grid for routes between start and
+     * finish. Takes time proportional to the number of squares.
+     */
+    public JunctionGraph(MazeGrid grid, int start, int finish) {
+        this.grid = grid;
+        this.start = start;
+        this.finish = finish;
+        editCount = grid.getEditCount();
+        int n = grid.size();
+
+        degree = new byte[n];
+        IntStack deadEnds = new IntStack();
+        for (int square = 0; square < n; square++) {
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                if (grid.neighbor(square, direction) >= 0) {
+                    degree[square]++;
+                }
+            }
+            if (degree[square] <= 1 && square != start && square != finish) {
+                deadEnds.push(square);
+            }
+        }
+        while (!deadEnds.isEmpty()) {
+            int square = deadEnds.pop();
+            degree[square] = -1;
+            numFilled++;
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(square, direction);
+                if (next >= 0 && degree[next] > 0) {
+                    degree[next]--;
+                    if (degree[next] == 1 && next != start && next != finish) {
+                        deadEnds.push(next);
+                    }
+                }
+            }
+        }
+
+        nodeOf = new int[n];
+        Arrays.fill(nodeOf, -1);
+        int numNodes = 0;
+        for (int square = 0; square < n; square++) {
+            if (degree[square] >= 0 && (degree[square] != 2 || square == start || square == finish)) {
+                nodeOf[square] = numNodes++;
+            }
+        }
+        squareOf = new int[numNodes];
+        for (int square = 0; square < n; square++) {
+            if (nodeOf[square] >= 0) {
+                squareOf[nodeOf[square]] = square;
+            }
+        }
+
+        edgeStart = new int[numNodes + 1];
+        int[] targets = new int[4 * numNodes];
+        int[] weights = new int[4 * numNodes];
+        byte[] directions = new byte[4 * numNodes];
+        int numEdges = 0;
+        for (int node = 0; node < numNodes; node++) {
+            edgeStart[node] = numEdges;
+            int square = squareOf[node];
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = grid.neighbor(square, direction);
+                if (next < 0 || degree[next] < 0) {
+                    continue;
+                }
+                int prev = square;
+                int cur = next;
+                int weight = 1;
+                while (nodeOf[cur] < 0) {
+                    int after = corridorNext(cur, prev);
+                    prev = cur;
+                    cur = after;
+                    weight++;
+                }
+                if (cur != square) {
+                    targets[numEdges] = nodeOf[cur];
+                    weights[numEdges] = weight;
+                    directions[numEdges] = (byte) direction;
+                    numEdges++;
+                }
+            }
+        }
+        edgeStart[numNodes] = numEdges;
+        edgeTarget = Arrays.copyOf(targets, numEdges);
+        edgeWeight = Arrays.copyOf(weights, numEdges);
+        edgeDirection = Arrays.copyOf(directions, numEdges);
+    }
+
+    /**
+     * Returns the square after cur in a corridor entered from prev.
+     */
+    private int corridorNext(int cur, int prev) {
+        for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+            int next = grid.neighbor(cur, direction);
+            if (next >= 0 && next != prev && degree[next] >= 0) {
+                return next;
+            }
+        }
+        throw new IllegalStateException("Corridor at square " + cur + " has no way on");
+    }
+
+    /**
+     * Returns true if this graph was built from the given grid, start and
+     * finish, and no walls of the grid have been changed since.
+     */
+    public boolean isFor(MazeGrid grid, int start, int finish) {
+        return this.grid == grid && this.start == start && this.finish == finish
+                && editCount == grid.getEditCount();
+    }
+
+    /**
+     * Returns the number of squares removed by dead-end filling.
+     */
+    public int getNumFilled() {
+        return numFilled;
+    }
+
+    /**
+     * Returns the number of junctions, plus the start and finish squares.
+     */
+    public int getNumNodes() {
+        return squareOf.length;
+    }
+
+    /**
+     * Returns the number of corridors between nodes, counting each once in
+     * each direction.
+     */
+    public int getNumEdges() {
+        return edgeTarget.length;
+    }
+
+    /**
+     * Returns true if dead-end filling removed the given square, meaning it
+     * is on no route from the start to the finish.
+     */
+    public boolean isFilled(int square) {
+        return degree[square] < 0;
+    }
+
+    /**
+     * Finds a shortest path from the start square to the finish square.
+     * @return the indices of every square on the path, start first and
+     * finish last, or an empty array if there is no path
+     */
+    public int[] shortestPath() {
+        return shortestPath(null);
+    }
+
+    /**
+     * Finds a shortest path like shortestPath(), then reports the search to
+     * listener (if it is not null) as a solve by the "compressed" solver,
+     * counting graph nodes rather than squares.
+     */
+    public int[] shortestPath(SolveListener listener) {
+        int numNodes = squareOf.length;
+        int[] distance = new int[numNodes];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        // The edge each node was reached by, or -1 for the start node
+        int[] viaEdge = new int[numNodes];
+        int[] parent = new int[numNodes];
+        boolean[] closed = new boolean[numNodes];
+
+        int source = nodeOf[start];
+        int target = nodeOf[finish];
+        heap.clear();
+        distance[source] = 0;
+        parent[source] = source;
+        viaEdge[source] = -1;
+        heap.push(0, source);
+        long reached = 1;
+        long pushes = 1;
+        long pops = 0;
+        int maxHeap = 1;
+        int[] path = new int[0];
+        while (!heap.isEmpty()) {
+            int node = heap.pop();
+            pops++;
+            if (closed[node]) {
+                continue;
+            }
+            if (node == target) {
+                path = expand(parent, viaEdge, source, target, distance[target]);
+                break;
+            }
+            closed[node] = true;
+            for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+                int next = edgeTarget[edge];
+                int nextDistance = distance[node] + edgeWeight[edge];
+                if (!closed[next] && nextDistance < distance[next]) {
+                    if (distance[next] == Integer.MAX_VALUE) {
+                        reached++;
+                    }
+                    distance[next] = nextDistance;
+                    parent[next] = node;
+                    viaEdge[next] = edge;
+                    heap.push(nextDistance, next);
+                    pushes++;
+                    maxHeap = Math.max(maxHeap, heap.size());
+                }
+            }
+        }
+        if (listener != null) {
+            listener.solveFinished("compressed", reached, pushes, pops, maxHeap);
+        }
+        return path;
+    }
+
+    /**
+     * Walks the corridors of the edges leading back from target to source
+     * and returns the squares passed in order from source to target.
+     */
+    private int[] expand(int[] parent, int[] viaEdge, int source, int target, int length) {
+        int[] path = new int[length + 1];
+        int end = length;
+        for (int node = target; node != source; node = parent[node]) {
+            int edge = viaEdge[node];
+            int from = squareOf[parent[node]];
+            int steps = edgeWeight[edge];
+            int i = end - steps;
+            int prev = from;
+            int cur = grid.neighbor(from, edgeDirection[edge]);
+            path[i++] = from;
+            path[i++] = cur;
+            while (i <= end) {
+                int after = corridorNext(cur, prev);
+                prev = cur;
+                cur = after;
+                path[i++] = cur;
+            }
+            end -= steps;
+        }
+        path[0] = start;
+        return path;
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+* LatencyHistogram records non-negative values, such as times in
+* nanoseconds, in a fixed number of buckets whose width grows with the
+* value, in the style of HdrHistogram. Small values are counted exactly and
+* larger ones to within about 3%, so recording is a few instructions and the
+* histogram takes under 8KB however many values it holds.
+*/
+public class LatencyHistogram {
+    // Values below 2^SUB_BITS get a bucket each; above that, each power of
+    // two is split into 2^(SUB_BITS - 1) buckets
+    private static final int SUB_BITS = 6;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+
+    private final long[] counts = new long[(66 - SUB_BITS) * HALF];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Records one value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketOf(value)]++;
+        totalCount++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the smallest value recorded, or 0 if there are none.
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the largest value recorded, or 0 if there are none.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns a value that at least the given percentage of the recorded
+     * values are less than or equal to, or 0 if there are none.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= target) {
+                return Math.min(highestValueIn(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets every value recorded so far.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < 2 * HALF) {
+            return bucket;
+        }
+        int shift = (bucket >> (SUB_BITS - 1)) - 1;
+        long sub = bucket - ((long) shift << (SUB_BITS - 1));
+        long highest = ((sub + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+/**
+* LongHeap is a binary min-heap of squares ordered by a non-negative
+* priority, stored as (priority << 32 | square) longs so no objects are
+* created per entry. A square may be pushed more than once; callers skip
+* stale copies when they pop them. AStarSolver and JunctionGraph's Dijkstra
+* search share this one heap, and clear() lets a heap be reused from one
+* search to the next without giving up its array.
+*/
+public class LongHeap {
+    private long[] heap = new long[16];
+    private int size;
+
+    /**
+     * Returns true if the heap has no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of entries in the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry, keeping the array for the next search.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a square with the given priority.
+     */
+    public void push(long priority, int square) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        long entry = (priority << 32) | square;
+        int i = size++;
+        while (i > 0 && heap[(i - 1) / 2] > entry) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Removes the entry with the smallest priority and returns its square.
+     */
+    public int pop() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= last) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return (int) top;
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+* MappedMazeLoader reads a maze file by memory-mapping it and parsing the
+* header and square descriptors straight from the mapped bytes. No Strings are
+* built per line, and files larger than 2GB are mapped one window at a time.
+*
+* The file format is the one Maze has always read: six integers (columns,
+* rows, start column, start row, finish column, finish row), the rest of the
+* line holding the last integer is ignored, then one line per row with one
+* of *, _, | or 7 per square.
+*/
+public class MappedMazeLoader implements AutoCloseable {
+
+    /**
+     * Receives the walls of each square as it is parsed.
+     */
+    public interface SquareSink {
+        void setWalls(int row, int col, int wallBits);
+    }
+
+    // Largest number of bytes mapped at once
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    // The currently mapped part of the file
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    // Position of the next byte to read, and where it is for error messages
+    private long position;
+    private long line = 1;
+    private long column = 1;
+
+    // Header values, in the order they appear in the file
+    private int numColumns;
+    private int numRows;
+    private int startColumn;
+    private int startRow;
+    private int finishColumn;
+    private int finishRow;
+
+    /**
+     * Opens the given maze file for reading.
+     * @throws java.nio.file.NoSuchFileException if there is no such file
+     */
+    public MappedMazeLoader(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        fileSize = channel.size();
+    }
+
+    /**
+     * Reads the six header integers. Must be called before readSquares().
+     */
+    public void readHeader() throws IOException, MazeFormatException {
+        numColumns = readInt();
+        numRows = readInt();
+        startColumn = readInt();
+        startRow = readInt();
+        finishColumn = readInt();
+        finishRow = readInt();
+        skipLine();
+    }
+
+    /**
+     * Reads numRows lines of numColumns square descriptors each, handing the
+     * walls of every square to sink. Characters after the last square of a
+     * line are ignored.
+     */
+    public void readSquares(SquareSink sink) throws IOException, MazeFormatException {
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numColumns; col++) {
+                long squareLine = line;
+                long squareColumn = column;
+                int c = read();
+                if (c == -1 || c == '\n' || c == '\r') {
+                    throw new MazeFormatException("Maze squares inconsistent with the number of rows and columns."
+                            + " Lack maze squares", squareLine, squareColumn);
+                }
+                int walls = MazeGrid.wallsFor((char) c);
+                if (walls < 0) {
+                    throw new MazeFormatException("Unrecognized character for MazeSquare description: "
+                            + (char) c, squareLine, squareColumn);
+                }
+                sink.setWalls(row, col, walls);
+            }
+            skipLine();
+        }
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getFinishColumn() {
+        return finishColumn;
+    }
+
+    public int getFinishRow() {
+        return finishRow;
+    }
+
+    /**
+     * Closes the file. Mapped windows are released by the JVM once they
+     * are no longer reachable.
+     */
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Returns the next byte of the file, or -1 at the end of the file.
+     */
+    private int read() throws IOException {
+        int c = peek();
+        if (c == -1) {
+            return -1;
+        }
+        position++;
+        if (c == '\n') {
+            line++;
+            column = 1;
+        } else {
+            column++;
+        }
+        return c;
+    }
+
+    /**
+     * Returns the next byte of the file without consuming it, mapping the
+     * next window of the file if the current one is used up.
+     */
+    private int peek() throws IOException {
+        if (position >= fileSize) {
+            return -1;
+        }
+        if (position >= windowEnd) {
+            windowStart = position;
+            windowEnd = Math.min(fileSize, position + WINDOW_SIZE);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+        }
+        return window.get((int) (position - windowStart)) & 0xFF;
+    }
+
+    /**
+     * Skips whitespace, then reads an optionally negative decimal integer.
+     */
+    private int readInt() throws IOException, MazeFormatException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            read();
+            c = peek();
+        }
+        if (c == -1) {
+            throw new MazeFormatException("Maze file not formatted correctly. Missing header values", line, column);
+        }
+        long intLine = line;
+        long intColumn = column;
+        boolean negative = false;
+        if (c == '-') {
+            negative = true;
+            read();
+            c = peek();
+        }
+        if (c < '0' || c > '9') {
+            throw new MazeFormatException("Maze file not formatted correctly. Expected an integer",
+                    intLine, intColumn);
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new MazeFormatException("Maze file not formatted correctly. Integer too large",
+                        intLine, intColumn);
+            }
+            read();
+            c = peek();
+        }
+        if (c != -1 && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+            throw new MazeFormatException("Maze file not formatted correctly. Expected an integer",
+                    intLine, intColumn);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Consumes everything up to and including the next line break.
+     */
+    private void skipLine() throws IOException {
+        int c = read();
+        while (c != -1 && c != '\n') {
+            c = read();
+        }
+    }
+}
@@ -4,13 +4,13 @@
 * @author Paean Luby
 * @author Simeng Li
 */
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.InputMismatchException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.util.List;
-import java.util.Scanner;
 import java.util.ArrayList;
-import java.util.NoSuchElementException;
 
 /**
 * Maze represents a maze that can be navigated. The maze
@@ -32,15 +32,30 @@ public class Maze {
     private int finishRow;
     private int finishColumn;
 
-    // Storing the maze squares in a list
-    private List<MazeSquare> mazeSquares;
+    // Walls and visited flags of every maze square, packed by MazeGrid
+    private MazeGrid grid;
 
-    // Make every maze square in this maze to be unvisited
-    private void unmarkSquares() {
-      for (MazeSquare s : mazeSquares) {
-        s.unmarkVisited();
-      }
-    }
+    // Shared by every getSolution() call; each solve borrows its scratch
+    // space from the SolveScratch pool, so concurrent calls do not interfere
+    private final DepthFirstSolver depthFirstSolver = new DepthFirstSolver();
+
+    // Answers solveBatch() queries; created on first use for each loaded grid
+    private volatile BatchSolver batchSolver;
+
+    // Connected components of the grid, built by load() if buildIndexOnLoad
+    // is set and otherwise on the first connectivity query
+    private boolean buildIndexOnLoad;
+    private volatile ConnectivityIndex connectivityIndex;
+
+    // Kept by getIncrementalSolutionPath() and told about every wall edit
+    private IncrementalSolver incrementalSolver;
+
+    // Told how long load, solve and print take, and passed on to solvers;
+    // null if nobody is listening
+    private SolveListener listener;
+
+    // Why the last load() failed, or null if it succeeded
+    private String loadError;
 
     /**
      * Creates an empty maze with no squares.
@@ -52,47 +67,7 @@ public class Maze {
         startColumn = 0;
         finishRow = 0;
         finishColumn = 0;
-        mazeSquares = new ArrayList<>();
-    }
-
-    /**
-     * @return a neighbor of this maze square that has not been visited yet
-     * @return null if all neighbors have been visited
-     */
-    private MazeSquare getUnvisitedNeighbor(MazeSquare square) {
-       int row = square.getRow();
-       int col = square.getColumn();
-
-       // Check "UP"
-       if (row > 0 && !square.hasTopWall()) { // to make sure row-1 is not negative
-           MazeSquare up = getMazeSquare(row-1, col);
-           if (!up.getVisited()) {
-               return up;
-           }
-       }
-
-       // Check "DOWN"
-       if (row + 1 < numRows) { // to make sure row+1 is not out of bounds
-           MazeSquare down = getMazeSquare(row+1, col);
-           if (!down.hasTopWall() && !down.getVisited()) {
-               return down;
-           }
-       }
-
-       if (col > 0) { // to make sure col-1 is not negative
-           MazeSquare left = getMazeSquare(row, col-1);
-           if (!left.getVisited() && !left.hasRightWall()) {
-               return left;
-           }
-       }
-
-       if (col < numColumns && !square.hasRightWall()) { // to make sure col-1 is not negative
-           MazeSquare right = getMazeSquare(row, col+1);
-           if (!right.getVisited()) {
-               return right;
-           }
-       }
-       return null;
+        grid = new MazeGrid(0, 0);
     }
 
     /**
@@ -107,90 +82,348 @@ public class Maze {
       * square (top of the stack)
       * @return empty stack if there is no solution
       */
-    public MysteryStackImplementation<MazeSquare> getSolution() {
-      unmarkSquares();
-      MysteryStackImplementation<MazeSquare> storer = new MysteryStackImplementation<>();
-      storer.push(getMazeSquare(startRow, startColumn));
-      getMazeSquare(startRow, startColumn).markVisited();
-
-      while (true) {
-        if (storer.isEmpty()) {
-          break;
-        } else if (storer.peek().equals(getMazeSquare(finishRow, finishColumn))) {
-          break;
-        } else if (getUnvisitedNeighbor(storer.peek()) == null) {
-            storer.pop();
-        } else {
-          MazeSquare accessible = getUnvisitedNeighbor(storer.peek());
-          accessible.markVisited();
-          storer.push(accessible);
+    public Stack<MazeSquare> getSolution() {
+      return getSolution(depthFirstSolver);
+    }
+
+    /**
+     * Returns the number of rows in the maze.
+     */
+    public int getNumRows() {
+      return numRows;
+    }
+
+    /**
+     * Returns the number of columns in the maze.
+     */
+    public int getNumColumns() {
+      return numColumns;
+    }
+
+    /**
+     * Computes a solution to this maze with the given solver, returning the
+     * grid indices (row * numColumns + column) of the squares on the path.
+     *
+     * Once loaded, a maze can be solved by many threads at once, as long as
+     * no thread is changing walls or loading a new maze. Each thread needs
+     * its own instance of solvers that keep state between solves
+     * (CompressedSolver and IncrementalSolver); the other solvers can be
+     * shared. They keep their working arrays in pooled SolveScratch
+     * objects, except for the claim bits ParallelSolver's threads share,
+     * which it allocates for each solve.
+     * @return the path from the start square to the finish square
+     * @return empty array if there is no solution
+     */
+    public int[] getSolutionPath(Solver solver) {
+      // Always set, so a shared solver stops reporting to an earlier listener
+      solver.setListener(listener);
+      // The connectivity index, if built, answers unsolvable mazes without
+      // running the solver
+      boolean unsolvable = connectivityIndex != null && !isSolvable();
+      if (listener == null) {
+        return unsolvable ? new int[0]
+            : solver.solve(grid, grid.index(startRow, startColumn), grid.index(finishRow, finishColumn));
+      }
+      long began = System.nanoTime();
+      int[] path;
+      if (unsolvable) {
+        path = new int[0];
+        listener.solveFinished("index", 0, 0, 0, 0);
+      } else {
+        path = solver.solve(grid, grid.index(startRow, startColumn), grid.index(finishRow, finishColumn));
+      }
+      listener.phaseFinished("solve", System.nanoTime() - began);
+      if (grid instanceof TiledMazeGrid) {
+        TiledMazeGrid tiled = (TiledMazeGrid) grid;
+        listener.tilesRead(tiled.getHits(), tiled.getMisses(), tiled.getEvictions());
+      }
+      return path;
+    }
+
+    /**
+     * Sets the listener told how long each load, solve and print takes, and
+     * handed to each solver this maze runs so it can report its work. Pass
+     * null to stop listening.
+     */
+    public void setListener(SolveListener listener) {
+      this.listener = listener;
+    }
+
+    /**
+     * Computes a solution to this maze with the given solver. Unlike
+     * getSolution(), solvers such as BreadthFirstSolver guarantee the
+     * solution is a shortest one.
+     *
+     * @return a stack of MazeSquare objects from the start square (bottom of
+     * the stack) to the finish square (top of the stack)
+     * @return empty stack if there is no solution
+     */
+    public Stack<MazeSquare> getSolution(Solver solver) {
+      return new MazeSquareStack(grid, getSolutionPath(solver));
+    }
+
+    /**
+     * Computes a shortest solution with an IncrementalSolver kept by this
+     * maze. After walls are changed with setTopWall or setRightWall, the
+     * previous solution is repaired around the change instead of being
+     * recomputed from scratch.
+     * @return the grid indices of the squares on the path from the start
+     * square to the finish square, or an empty array if there is none
+     */
+    public int[] getIncrementalSolutionPath() {
+      if (incrementalSolver == null) {
+        incrementalSolver = new IncrementalSolver();
+      }
+      return getSolutionPath(incrementalSolver);
+    }
+
+    /**
+     * Adds or removes the top wall of the square at the given row and column.
+     * @throws UnsupportedOperationException if the maze was loaded from a
+     * tile file, which is opened read-only
+     */
+    public void setTopWall(int row, int col, boolean present) {
+      setWall(row, col, MazeGrid.TOP_WALL, present);
+    }
+
+    /**
+     * Adds or removes the right wall of the square at the given row and
+     * column.
+     * @throws UnsupportedOperationException if the maze was loaded from a
+     * tile file, which is opened read-only
+     */
+    public void setRightWall(int row, int col, boolean present) {
+      setWall(row, col, MazeGrid.RIGHT_WALL, present);
+    }
+
+    /**
+     * Changes one wall and drops everything computed from the old walls:
+     * the batch solver and the connectivity index are rebuilt when next
+     * needed, and the incremental solver is told which wall changed.
+     */
+    private void setWall(int row, int col, int wall, boolean present) {
+      if (!isInRange(row, 0, numRows) || !isInRange(col, 0, numColumns)) {
+        throw new IndexOutOfBoundsException("No maze square at row " + row + ", column " + col);
+      }
+      int index = grid.index(row, col);
+      if (grid.setWall(index, wall, present)) {
+        batchSolver = null;
+        connectivityIndex = null;
+        if (incrementalSolver != null) {
+          incrementalSolver.wallChanged(grid, index, wall);
         }
       }
-      return storer;
     }
 
     /**
-     * Loads the maze that is written in the given fileName.
+     * Finds a shortest route for each of the given queries. Work is shared
+     * between queries: perfect mazes are indexed once so each route costs
+     * time proportional to its length, and other mazes are searched once per
+     * distinct start square.
+     * @return for each query, the grid indices of the squares on its route
+     * from start to finish, or an empty array if there is no route
+     */
+    public List<int[]> solveBatch(List<RouteQuery> queries) {
+      int[] starts = new int[queries.size()];
+      int[] finishes = new int[queries.size()];
+      toIndices(queries, starts, finishes);
+      List<int[]> paths = new ArrayList<>();
+      for (int[] path : getBatchSolver().solve(starts, finishes)) {
+        paths.add(path);
+      }
+      return paths;
+    }
+
+    /**
+     * Finds the length in steps of a shortest route for each of the given
+     * queries, or -1 for queries with no route.
+     */
+    public int[] getDistances(List<RouteQuery> queries) {
+      int[] starts = new int[queries.size()];
+      int[] finishes = new int[queries.size()];
+      toIndices(queries, starts, finishes);
+      return getBatchSolver().distances(starts, finishes);
+    }
+
+    private synchronized BatchSolver getBatchSolver() {
+      if (batchSolver == null) {
+        batchSolver = new BatchSolver(grid, connectivityIndex);
+      }
+      return batchSolver;
+    }
+
+    /**
+     * Fills starts and finishes with the grid indices of each query's squares.
+     */
+    private void toIndices(List<RouteQuery> queries, int[] starts, int[] finishes) {
+      int q = 0;
+      for (RouteQuery query : queries) {
+        if (!isInRange(query.getStartRow(), 0, numRows) || !isInRange(query.getStartColumn(), 0, numColumns)
+                || !isInRange(query.getFinishRow(), 0, numRows) || !isInRange(query.getFinishColumn(), 0, numColumns)) {
+          throw new IndexOutOfBoundsException("Route " + query + " is not in maze");
+        }
+        starts[q] = grid.index(query.getStartRow(), query.getStartColumn());
+        finishes[q] = grid.index(query.getFinishRow(), query.getFinishColumn());
+        q++;
+      }
+    }
+
+    /**
+     * Sets whether load() builds a ConnectivityIndex for the maze. With the
+     * index, unsolvable mazes are recognised in constant time and solvers
+     * are not run on them at all.
+     */
+    public void setBuildIndexOnLoad(boolean buildIndex) {
+      buildIndexOnLoad = buildIndex;
+    }
+
+    /**
+     * Returns true if the finish square can be reached from the start square.
+     * Builds the connectivity index first if the maze does not have one yet.
+     */
+    public boolean isSolvable() {
+      return getConnectivityIndex().areConnected(grid.index(startRow, startColumn),
+              grid.index(finishRow, finishColumn));
+    }
+
+    /**
+     * Returns true if there is a route between the two given squares. Builds
+     * the connectivity index first if the maze does not have one yet.
+     */
+    public boolean areConnected(int row1, int col1, int row2, int col2) {
+      if (!isInRange(row1, 0, numRows) || !isInRange(col1, 0, numColumns)
+              || !isInRange(row2, 0, numRows) || !isInRange(col2, 0, numColumns)) {
+        throw new IndexOutOfBoundsException("Square is not in maze");
+      }
+      return getConnectivityIndex().areConnected(grid.index(row1, col1), grid.index(row2, col2));
+    }
+
+    private synchronized ConnectivityIndex getConnectivityIndex() {
+      if (connectivityIndex == null) {
+        connectivityIndex = new ConnectivityIndex(grid);
+        batchSolver = null;
+      }
+      return connectivityIndex;
+    }
+
+    /**
+     * Loads the maze that is written in the given fileName. Text files are
+     * memory-mapped and parsed straight from their bytes by MappedMazeLoader;
+     * binary files (see BinaryMazeFile) are copied into the grid without
+     * parsing; tile files (see TiledMazeGrid) are left on disk and read a
+     * tile at a time as the maze is solved.
      * @return false if error thrown while loading the file
      * @return true if file successfully loaded
      */
     public boolean load(String fileName) {
-        Scanner scanner = null;
+        long began = System.nanoTime();
+        MazeGrid previous = grid;
+        // The header of the file being loaded: columns, rows, start column,
+        // start row, finish column and finish row. The fields are only
+        // changed once the new grid is in place, so a failed load leaves
+        // the previous maze as it was.
+        int[] header = null;
+        MazeGrid loadedGrid;
         try {
-            // Open a scanner to read the file
-            scanner = new Scanner(new File(fileName));
-            numColumns = scanner.nextInt();
-            numRows = scanner.nextInt();
-            startColumn = scanner.nextInt();
-            startRow = scanner.nextInt();
-            finishColumn = scanner.nextInt();
-            finishRow = scanner.nextInt();
-            scanner.nextLine();
-
-            if (!isInRange(startRow, 0, numRows)
-                    || !isInRange(startColumn, 0, numColumns)
-                    || !isInRange(finishRow, 0, numRows)
-                    || !isInRange(finishColumn, 0, numColumns)) {
-                System.err.println("Start or finish square is not in maze.");
-                scanner.close();
-                return false;
-            }
-
-          for (int i = 0; i < numRows; i++) {
-            String line = scanner.nextLine();
-            for (int k = 0; k < numColumns; k++) {
-
-              char col = line.charAt(k);
-
-              MazeSquare square = new MazeSquare(col, i, k);
-              if (square.isAllowedCharacter(col)) {
-                mazeSquares.add(square);
-              } else {
-                  return false;
+            if (TiledMazeGrid.isTileFile(fileName)) {
+                TiledMazeGrid tiled = TiledMazeGrid.open(fileName, TiledMazeGrid.DEFAULT_CACHE_TILES, false);
+                header = new int[] {tiled.getNumColumns(), tiled.getNumRows(), tiled.getStartColumn(),
+                        tiled.getStartRow(), tiled.getFinishColumn(), tiled.getFinishRow()};
+                if (!checkHeader(header)) {
+                    tiled.close();
+                    return false;
+                }
+                loadedGrid = tiled;
+            } else if (BinaryMazeFile.isBinaryMazeFile(fileName)) {
+                try (BinaryMazeFile file = new BinaryMazeFile(fileName)) {
+                    header = new int[] {file.getNumColumns(), file.getNumRows(), file.getStartColumn(),
+                            file.getStartRow(), file.getFinishColumn(), file.getFinishRow()};
+                    if (!checkHeader(header)) {
+                        return false;
+                    }
+                    loadedGrid = file.readGrid();
+                }
+            } else {
+                try (MappedMazeLoader loader = new MappedMazeLoader(fileName)) {
+                    loader.readHeader();
+                    header = new int[] {loader.getNumColumns(), loader.getNumRows(), loader.getStartColumn(),
+                            loader.getStartRow(), loader.getFinishColumn(), loader.getFinishRow()};
+                    if (!checkHeader(header)) {
+                        return false;
+                    }
+                    MazeGrid loaded = new MazeGrid(header[1], header[0]);
+                    loader.readSquares((row, col, walls) -> loaded.setWalls(loaded.index(row, col), walls));
+                    loadedGrid = loaded;
                 }
             }
-          }
-
-        } catch(FileNotFoundException e) {
-            System.err.println("The requested file, " + fileName + ", was not found.");
-            return false;
-        } catch(InputMismatchException e) {
-            System.err.println("Maze file not formatted correctly.");
-            scanner.close();
-            return false;
+        } catch(NoSuchFileException e) {
+            return loadFailed("The requested file, " + fileName + ", was not found.");
+        } catch(MazeFormatException e) {
+            return loadFailed(e.getMessage());
+        } catch(IllegalArgumentException e) {
+            if (header == null) {
+                return loadFailed("Maze dimensions too large.");
+            }
+            return loadFailed("Maze dimensions too large: " + header[0] + " x " + header[1] + ".");
+        } catch(IOException e) {
+            return loadFailed("Could not read " + fileName + ": " + e.getMessage());
         }
-          catch(NoSuchElementException e) {
-            System.err.println("Maze squares inconsistent with the number of rows and columns. Lack maze squares.");
-            scanner.close();
-            return false;
+
+        grid = loadedGrid;
+        numColumns = header[0];
+        numRows = header[1];
+        startColumn = header[2];
+        startRow = header[3];
+        finishColumn = header[4];
+        finishRow = header[5];
+        if (previous instanceof TiledMazeGrid && previous != grid) {
+            try {
+                ((TiledMazeGrid) previous).close();
+            } catch (IOException e) {
+                System.err.println("Could not close the previous maze: " + e.getMessage());
+            }
         }
-          catch(IndexOutOfBoundsException e) {
-            System.err.println("Maze file not formatted correctly. Too many characters for maze dimensions.");
-            scanner.close();
-            return false;
+        batchSolver = null;
+        connectivityIndex = buildIndexOnLoad ? new ConnectivityIndex(grid) : null;
+        loadError = null;
+        if (listener != null) {
+            listener.phaseFinished("load", System.nanoTime() - began);
         }
-          return true;
+        return true;
+    }
+
+    /**
+     * Returns why the last call to load() failed, or null if it succeeded
+     * or load() has not been called.
+     */
+    public String getLoadError() {
+        return loadError;
+    }
+
+    /**
+     * Prints and remembers why a load failed.
+     * @return false, for load() to return
+     */
+    private boolean loadFailed(String message) {
+        System.err.println(message);
+        loadError = message;
+        return false;
+    }
+
+    /**
+     * Checks the dimensions, start and finish read from a maze file header
+     * (columns, rows, start column, start row, finish column, finish row).
+     * @return false if the start or finish square is not in the maze
+     */
+    private boolean checkHeader(int[] header) {
+        if (!isInRange(header[3], 0, header[1])
+                || !isInRange(header[2], 0, header[0])
+                || !isInRange(header[5], 0, header[1])
+                || !isInRange(header[4], 0, header[0])) {
+            return loadFailed("Start or finish square is not in maze.");
         }
+        return true;
+    }
 
     /**
      * Returns true if number is greater than or equal to lower bound
@@ -205,171 +438,239 @@ public class Maze {
     }
 
      /**
-      * Prints the maze with the start and finish squares marked. Does
-      * not include a solution. If --solve is provided as the second command-line argument,
-      * the maze will be printed with its solution marked with asterisks. Otherwise,
-      * the maze will be printed with no solution.
+      * Prints the maze with the start and finish squares marked. If solution
+      * is not null, the squares on it (grid indices, as returned by
+      * getSolutionPath) are marked with asterisks. Otherwise, the maze will be
+      * printed with no solution.
       */
-     public void print(boolean solution, MysteryStackImplementation<MazeSquare> storer) {
+     public void print(int[] solution) {
+         try {
+             render(System.out, solution);
+         } catch (IOException e) {
+             System.err.println("Could not print the maze: " + e.getMessage());
+         }
+     }
 
-         List<MazeSquare> stackList = new ArrayList<>();
+     /**
+      * Writes the maze to out in the same layout as print(), with the squares
+      * on solution (if it is not null) marked with asterisks. out is flushed
+      * but not closed.
+      */
+     public void render(OutputStream out, int[] solution) throws IOException {
+         long began = System.nanoTime();
+         newRenderer().render(out, solution == null ? null : MazeRenderer.pathBits(solution, grid.size()));
+         if (listener != null) {
+             listener.phaseFinished("print", System.nanoTime() - began);
+         }
+     }
 
-         if (storer != null) {
-           while (!storer.isEmpty()) {
-             MazeSquare e = storer.pop();
-             stackList.add(e);
-            }
+     /**
+      * Writes the squares from (row, col) to (row + height - 1, col + width -
+      * 1) to out in the same layout as print(), with the squares on solution
+      * (if it is not null) marked with asterisks. out is flushed but not
+      * closed.
+      * @throws IndexOutOfBoundsException if the viewport is not inside the
+      * maze
+      */
+     public void renderViewport(OutputStream out, int[] solution, int row, int col, int height, int width)
+             throws IOException {
+         long began = System.nanoTime();
+         newRenderer().renderViewport(out, solution, row, col, height, width);
+         if (listener != null) {
+             listener.phaseFinished("print", System.nanoTime() - began);
          }
+     }
 
-         // We'll print off each row of squares in turn.
-         for (int row = 0; row < numRows; row++) {
-
-             // Print each of the lines of text in the row
-             for (int charInRow = 0; charInRow < 4; charInRow++) {
-                 // Need to start with the initial left wall.
-                 if (charInRow == 0) {
-                     System.out.print("+");
-                 } else {
-                     System.out.print("|");
-                 }
-
-                 for (int col = 0; col < numColumns; col++) {
-                     MazeSquare curSquare = this.getMazeSquare(row, col);
-                     if (charInRow == 0) {
-                         // We're in the first row of characters for this square - need to print
-                         // top wall if necessary.
-                         if (curSquare.hasTopWall()) {
-                             System.out.print(getTopWallString());
-                         } else {
-                             System.out.print(getTopOpenString());
-                         }
-                     } else if (charInRow == 1 || charInRow == 3) {
-                         // These are the interior of the square and are unaffected by
-                         // the start/final state.
-                         if (curSquare.hasRightWall()) {
-                             System.out.print(getRightWallString());
-                         } else {
-                             System.out.print(getOpenWallString());
-                         }
-                     } else {
-                         // We must be in the second row of characters.
-                         // This is the row where start/finish should be displayed if relevant
-
-                         // Check if we're in the start or finish state
-                         if (startRow == row && startColumn == col) {
-                             System.out.print("  S  ");
-                         } else if (finishRow == row && finishColumn == col) {
-                             System.out.print("  F  ");
-
-                         } else if (storer != null && stackList.contains(curSquare)) {
-                                   System.out.print("  *  ");
-                         } else {
-                             System.out.print("     ");
-                         }
-
-                         if (curSquare.hasRightWall()) {
-                             System.out.print("|");
-                         } else {
-                             System.out.print(" ");
-                         }
-                     }
-                 }
-                 // Now end the line to start the next
-                 System.out.print("\n");
-                 }
-             }
-
-         // Finally, we have to print off the bottom of the maze, since that's not explicitly represented
-         // by the squares. Printing off the bottom separately means we can think of each row as
-         // consisting of four lines of text.
-         printFullHorizontalRow(numColumns);
-
-         if (storer != null) {
-           while (stackList.size() > 0) {
-             storer.push(stackList.remove(stackList.size() - 1));
-           }
+     /**
+      * Writes the same viewport as renderViewport() to out as a binary PPM
+      * image (see MazeRenderer.renderImage). out is flushed but not closed.
+      * @throws IndexOutOfBoundsException if the viewport is not inside the
+      * maze
+      */
+     public void renderImage(OutputStream out, int[] solution, int row, int col, int height, int width)
+             throws IOException {
+         long began = System.nanoTime();
+         newRenderer().renderImage(out, solution, row, col, height, width);
+         if (listener != null) {
+             listener.phaseFinished("print", System.nanoTime() - began);
          }
      }
 
-    /**
-     * Prints the very bottom row of characters for the bottom row of maze squares (which is always walls).
-     * numColumns is the number of columns of bottom wall to print.
-     */
-    private static void printFullHorizontalRow(int numColumns) {
-        System.out.print("+");
-        for (int row = 0; row < numColumns; row++) {
-            // We use getTopWallString() since bottom and top walls are the same.
-            System.out.print(getTopWallString());
-        }
-        System.out.print("\n");
-    }
+     private MazeRenderer newRenderer() {
+         return new MazeRenderer(grid, grid.index(startRow, startColumn), grid.index(finishRow, finishColumn));
+     }
 
     /**
-     * Returns a String representing the bottom of a horizontal wall.
+     * @return the MazeSquare at the given row and column. The square is a
+     * lightweight view of the packed grid, so equal squares may be different
+     * objects.
      */
-    private static String getTopWallString() {
-        return "-----+";
+    public MazeSquare getMazeSquare(int row, int col) {
+       if (!isInRange(row, 0, numRows) || !isInRange(col, 0, numColumns)) {
+           throw new IndexOutOfBoundsException("No maze square at row " + row + ", column " + col);
+       }
+       return new MazeSquare(grid, row, col);
     }
 
     /**
-     * Returns a String representing the bottom of a square without a
-     * horizontal wall
+     * Loads the maze named by the first command line argument and prints
+     * it. If --solve is given, the maze is solved with getSolution() and
+     * printed with the solution marked; --solve=<algorithm> picks one of
+     * the Solver implementations instead (dfs, bfs, astar, bidirectional,
+     * parallel, compressed, incremental). --threads=<n> sets the number of
+     * threads the parallel solver uses, --out=<file> writes the maze to a
+     * file instead of printing it, and --index builds a connectivity index
+     * while loading so unsolvable mazes are recognised without searching.
+     * --stats prints a JSON summary of the run's timings and solver counters
+     * to standard error when it is done, and --stats=<file> writes it to a
+     * file instead. --viewport=<row>,<col>,<height>,<width> draws only that
+     * rectangle of squares, and --ppm draws a PPM image instead of text.
      */
-    private static String getTopOpenString() {
-        return "     +";
-    }
+    public static void main(String[] args) {
+      Maze maze = new Maze();
 
-    /**
-     * Returns a String representing a left wall (for the interior of the row).
-     */
-    private static String getRightWallString() {
-        return "     |";
+      if (args.length == 0) {
+        System.out.println("Please input a valid file name.");
+        return;
+      }
+
+      String solverName = null;
+      int threads = 0;
+      String outFile = null;
+      SolveMetrics metrics = null;
+      String statsFile = null;
+      int[] viewport = null;
+      boolean image = false;
+      for (int i = 1; i < args.length; i++) {
+        if (args[i].equals("--solve")) {
+          solverName = "dfs";
+        } else if (args[i].startsWith("--solve=")) {
+          solverName = args[i].substring("--solve=".length());
+        } else if (args[i].startsWith("--threads=")) {
+          threads = parsePositive(args[i].substring("--threads=".length()));
+          if (threads <= 0) {
+            System.out.println("Invalid argument " + args[i] + ". The number of threads must be a positive integer.");
+            return;
+          }
+        } else if (args[i].startsWith("--out=")) {
+          outFile = args[i].substring("--out=".length());
+        } else if (args[i].equals("--index")) {
+          maze.setBuildIndexOnLoad(true);
+        } else if (args[i].equals("--stats") || args[i].startsWith("--stats=")) {
+          metrics = new SolveMetrics();
+          maze.setListener(metrics);
+          statsFile = args[i].equals("--stats") ? null : args[i].substring("--stats=".length());
+        } else if (args[i].startsWith("--viewport=")) {
+          viewport = MazeRenderer.parseViewport(args[i].substring("--viewport=".length()));
+          if (viewport == null) {
+            System.out.println("Invalid argument " + args[i] + ". The viewport must be four non-negative integers <row>,<col>,<height>,<width>.");
+            return;
+          }
+        } else if (args[i].equals("--ppm")) {
+          image = true;
+        } else {
+          System.out.println("Invalid argument " + args[i] + ". Please type --solve, --solve=<algorithm>, --threads=<n>, --out=<file>, --index, --stats, --stats=<file>, --viewport=<row>,<col>,<height>,<width>, --ppm or nothing.");
+          return;
+        }
+      }
+
+      Solver solver = null;
+      if (solverName != null) {
+        if (solverName.equals("parallel") && threads > 0) {
+          solver = new ParallelSolver(threads);
+        } else {
+          solver = Solver.forName(solverName);
+        }
+        if (solver == null) {
+          System.out.println("Unknown solver " + solverName + ". Please choose dfs, bfs, astar, bidirectional, parallel, compressed or incremental.");
+          return;
+        }
+      }
+
+      if (maze.load(args[0])) {
+        int[] solution = null;
+        if (solver != null) {
+          try {
+            solution = maze.getSolutionPath(solver);
+          } finally {
+            if (solver instanceof ParallelSolver) {
+              ((ParallelSolver) solver).close();
+            }
+          }
+        }
+        if (viewport == null && !image) {
+          if (outFile == null) {
+            maze.print(solution);
+          } else {
+            try (OutputStream out = new FileOutputStream(outFile)) {
+              maze.render(out, solution);
+            } catch (IOException e) {
+              System.err.println("Could not write " + outFile + ": " + e.getMessage());
+            }
+          }
+        } else {
+          if (viewport == null) {
+            viewport = new int[] {0, 0, maze.getNumRows(), maze.getNumColumns()};
+          }
+          try {
+            // Standard output is only flushed by the renderer, never closed
+            if (outFile == null) {
+              drawView(maze, System.out, solution, viewport, image);
+            } else {
+              try (OutputStream out = new FileOutputStream(outFile)) {
+                drawView(maze, out, solution, viewport, image);
+              }
+            }
+          } catch (IndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+          } catch (IOException e) {
+            System.err.println("Could not write " + (outFile == null ? "the maze" : outFile) + ": " + e.getMessage());
+          }
+        }
+        if (metrics != null) {
+          writeStats(metrics, statsFile);
+        }
+      }
     }
 
     /**
-     * Returns a String representing no left wall (for the interior of the row).
+     * Draws the viewport (row, column, height, width) of maze to out, as a
+     * PPM image if image is true and as text otherwise.
      */
-    private static String getOpenWallString() {
-        return "      ";
+    private static void drawView(Maze maze, OutputStream out, int[] solution, int[] viewport, boolean image)
+        throws IOException {
+      if (image) {
+        maze.renderImage(out, solution, viewport[0], viewport[1], viewport[2], viewport[3]);
+      } else {
+        maze.renderViewport(out, solution, viewport[0], viewport[1], viewport[2], viewport[3]);
+      }
     }
 
     /**
-     * @return the MazeSquare at the given row and column
+     * Writes the JSON summary of metrics to fileName, or to standard error
+     * if fileName is null.
      */
-    public MazeSquare getMazeSquare(int row, int col) {
-       // System.out.println("hello"+numRows*row+col);
-       return mazeSquares.get(numColumns*row+col);
+    private static void writeStats(SolveMetrics metrics, String fileName) {
+      if (fileName == null) {
+        System.err.println(metrics.toJson());
+        return;
+      }
+      try (OutputStream out = new FileOutputStream(fileName)) {
+        out.write((metrics.toJson() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        System.err.println("Could not write " + fileName + ": " + e.getMessage());
+      }
     }
 
     /**
-     * You should modify main so that if there is only one
-     * command line argument, it loads the maze and prints it
-     * with no solution. If there are two command line arguments
-     * and the second one is --solve,
-     * it should load the maze, solve it, and print the maze
-     * with the solution marked. No other command lines are valid.
+     * Returns the positive integer written in text, or -1 if text is not one.
      */
-    public static void main(String[] args) {
-      Maze maze = new Maze();
-
-      if (args.length == 0) {
-        System.out.println("Please input a valid file name.");
-      } else {
-          if (maze.load(args[0]) == false) {
-              System.err.print("");
-          } else {
-              if (args.length == 2) {
-                if (args[1].equals("--solve")) {
-                  maze.print(true, maze.getSolution());
-                } else {
-                    System.out.println("Invalid second argument. Please type --solve or nothing.");
-                  }
-              } else if (args.length == 1) {
-                  maze.print(false, null);
-                } else {
-                  System.out.println("Too many command-line arguments.");
-                }
-            }
-        }
+    private static int parsePositive(String text) {
+      try {
+        int value = Integer.parseInt(text);
+        return value > 0 ? value : -1;
+      } catch (NumberFormatException e) {
+        return -1;
+      }
     }
 }
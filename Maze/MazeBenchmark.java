@@ -0,0 +1,222 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+* MazeBenchmark times loading, solving (with every Solver) and rendering on
+* mazes made by MazeGenerator, for a range of sizes and three topologies:
+* perfect (one route between any two squares), looped (many routes) and
+* unsolvable. For each benchmark it reports throughput, median and 99th
+* percentile latency, and bytes allocated per operation by the benchmarking
+* thread.
+*
+* Results can be saved and later used as a baseline: a run with
+* --baseline=<file> fails (exit status 1) if any benchmark's throughput fell
+* by more than the tolerance, which lets a build gate performance
+* regressions.
+*
+* Usage: java MazeBenchmark [--sizes=100,500,1000] [--warmup=3]
+*   [--iterations=10] [--save=<file>] [--baseline=<file>] [--tolerance=0.2]
+*/
+public class MazeBenchmark {
+    private static final String[] SOLVERS = {"dfs", "bfs", "astar", "bidirectional", "parallel", "compressed"};
+
+    // Topology name and the MazeGenerator algorithm and flag that make it
+    private static final String[][] TOPOLOGIES = {
+        {"perfect", "kruskal", "solvable"},
+        {"looped", "rooms", "solvable"},
+        {"unsolvable", "eller", "unsolvable"},
+    };
+
+    private int warmup = 3;
+    private int iterations = 10;
+
+    // Throughput of each benchmark, keyed by benchmark name
+    private final Map<String, Double> results = new HashMap<>();
+
+    /**
+     * One timed operation.
+     */
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs operation warmup + iterations times, prints one result line and
+     * records its throughput under name.
+     */
+    private void measure(String name, Operation operation) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long[] nanos = new long[iterations];
+        long allocatedBefore = allocatedBytes();
+        long totalNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long begin = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - begin;
+            totalNanos += nanos[i];
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        Arrays.sort(nanos);
+
+        double throughput = iterations / (totalNanos / 1e9);
+        results.put(name, throughput);
+        System.out.printf("%-40s %12.2f %12.3f %12.3f %14d%n", name, throughput,
+                percentile(nanos, 0.50) / 1e6, percentile(nanos, 0.99) / 1e6,
+                allocated < 0 ? -1 : allocated / iterations);
+    }
+
+    /**
+     * Returns the value below which the given fraction of the sorted
+     * samples fall.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Returns the number of bytes this thread has allocated so far, or -1 if
+     * the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Runs every benchmark for a maze of the given size and topology.
+     */
+    private void benchmarkMaze(int size, String[] topology) throws IOException {
+        File file = File.createTempFile("maze-" + topology[0] + "-" + size + "-", ".txt");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            MazeGenerator.generate(topology[1], size, size, size, topology[2].equals("unsolvable"), out);
+        }
+        String suffix = "/" + topology[0] + "/" + size;
+
+        Maze maze = new Maze();
+        measure("load" + suffix, () -> {
+            if (!maze.load(file.getPath())) {
+                throw new IOException("Could not load " + file);
+            }
+        });
+
+        int[][] solution = new int[1][];
+        for (String name : SOLVERS) {
+            Solver solver = Solver.forName(name);
+            measure("solve-" + name + suffix, () -> solution[0] = maze.getSolutionPath(solver));
+        }
+
+        OutputStream discard = OutputStream.nullOutputStream();
+        measure("render" + suffix, () -> maze.render(discard, solution[0]));
+    }
+
+    /**
+     * Loads throughputs saved by an earlier run with --save.
+     */
+    private static Map<String, Double> readResults(String fileName) throws IOException {
+        Map<String, Double> saved = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 2) {
+                    saved.put(parts[0], Double.parseDouble(parts[1]));
+                }
+            }
+        }
+        return saved;
+    }
+
+    private void saveResults(String fileName) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(fileName))) {
+            for (Map.Entry<String, Double> result : results.entrySet()) {
+                out.println(result.getKey() + "," + result.getValue());
+            }
+        }
+    }
+
+    /**
+     * Prints every benchmark that got slower than baseline by more than
+     * tolerance, and returns how many there were.
+     */
+    private int countRegressions(Map<String, Double> baseline, double tolerance) {
+        int regressions = 0;
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            Double before = baseline.get(result.getKey());
+            if (before != null && result.getValue() < before * (1 - tolerance)) {
+                System.out.printf("REGRESSION %s: %.2f ops/s, baseline %.2f ops/s%n",
+                        result.getKey(), result.getValue(), before);
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        MazeBenchmark benchmark = new MazeBenchmark();
+        List<Integer> sizes = new ArrayList<>(Arrays.asList(100, 500, 1000));
+        String saveFile = null;
+        String baselineFile = null;
+        double tolerance = 0.2;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--sizes=")) {
+                    sizes.clear();
+                    for (String size : arg.substring("--sizes=".length()).split(",")) {
+                        sizes.add(Integer.parseInt(size));
+                    }
+                } else if (arg.startsWith("--warmup=")) {
+                    benchmark.warmup = Integer.parseInt(arg.substring("--warmup=".length()));
+                } else if (arg.startsWith("--iterations=")) {
+                    benchmark.iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+                } else if (arg.startsWith("--save=")) {
+                    saveFile = arg.substring("--save=".length());
+                } else if (arg.startsWith("--baseline=")) {
+                    baselineFile = arg.substring("--baseline=".length());
+                } else if (arg.startsWith("--tolerance=")) {
+                    tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+            if (benchmark.iterations < 1 || benchmark.warmup < 0) {
+                throw new IllegalArgumentException("iterations");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Usage: java MazeBenchmark [--sizes=100,500,1000] [--warmup=3] [--iterations=10]"
+                    + " [--save=<file>] [--baseline=<file>] [--tolerance=0.2]");
+            return;
+        }
+
+        System.out.printf("%-40s %12s %12s %12s %14s%n", "benchmark", "ops/s", "p50 ms", "p99 ms", "bytes/op");
+        for (int size : sizes) {
+            for (String[] topology : TOPOLOGIES) {
+                benchmark.benchmarkMaze(size, topology);
+            }
+        }
+
+        if (saveFile != null) {
+            benchmark.saveResults(saveFile);
+        }
+        if (baselineFile != null && benchmark.countRegressions(readResults(baselineFile), tolerance) > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+* MazeClient talks to a MazeServer listening on a local port. It sends one
+* request line at a time and reads back the whole answer, including the
+* extra lines of a RENDER answer.
+*/
+public class MazeClient implements AutoCloseable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * Connects to the MazeServer on the given port of this machine.
+     */
+    public MazeClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a request and returns the server's answer. The lines of a
+     * multi-line answer are separated by line breaks.
+     * @throws IOException if the connection is lost
+     */
+    public String request(String request) throws IOException {
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String answer = in.readLine();
+        if (answer == null) {
+            throw new IOException("The server closed the connection");
+        }
+        if (request.trim().toUpperCase().startsWith("RENDER") && answer.startsWith("OK ")) {
+            int lines = Integer.parseInt(answer.substring("OK ".length()));
+            StringBuilder text = new StringBuilder(answer);
+            for (int i = 0; i < lines; i++) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw new IOException("The server closed the connection");
+                }
+                text.append('\n').append(line);
+            }
+            answer = text.toString();
+        }
+        return answer;
+    }
+
+    /**
+     * Says goodbye to the server and closes the connection.
+     */
+    public void close() throws IOException {
+        try {
+            out.write("QUIT\n");
+            out.flush();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Sends the request made of the remaining command line arguments and
+     * prints the answer, or with no request, sends each line of standard
+     * input in turn.
+     */
+    public static void main(String[] args) {
+        int port;
+        try {
+            port = args.length == 0 ? -1 : Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port < 0) {
+            System.out.println("Usage: java MazeClient <port> [<request> ...]");
+            return;
+        }
+        try (MazeClient client = new MazeClient(port)) {
+            if (args.length > 1) {
+                System.out.println(client.request(String.join(" ", Arrays.copyOfRange(args, 1, args.length))));
+                return;
+            }
+            BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = requests.readLine()) != null) {
+                if (line.trim().equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                if (!line.trim().isEmpty()) {
+                    System.out.println(client.request(line));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not talk to the server on port " + port + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+* MazeFormatException is thrown when a maze file does not follow the maze
+* file format. The message says what was wrong and, for text files, where
+* (line and column, both starting at 1) it was found.
+*/
+public class MazeFormatException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final long line;
+    private final long column;
+
+    /**
+     * Creates an exception for a problem found at the given line and column.
+     */
+    public MazeFormatException(String problem, long line, long column) {
+        super(problem + " (line " + line + ", column " + column + ")");
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Creates an exception for a problem in a file without lines, such as
+     * a binary maze file. Its line and column are 0.
+     */
+    public MazeFormatException(String problem) {
+        super(problem);
+        this.line = 0;
+        this.column = 0;
+    }
+
+    /**
+     * Returns the line the problem was found on.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column the problem was found at.
+     */
+    public long getColumn() {
+        return column;
+    }
+}
@@ -0,0 +1,502 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+* MazeGenerator writes random mazes in the text format Maze.load reads, with
+* the start square in the top left corner and the finish square in the
+* bottom right corner. The same algorithm, size and seed always produce the
+* same maze.
+*
+* backtracker, kruskal and wilson build a perfect maze in a packed MazeGrid
+* (a few bits per square) and then write it out. eller and rooms never hold
+* more than one row of the maze: they generate it row by row with Eller's
+* algorithm and stream each row to the file as soon as it is done, so they
+* can produce mazes far larger than memory. rooms opens up square rooms
+* joined by doors and adds extra doors, so it has loops and many routes.
+*/
+public class MazeGenerator {
+    // Names accepted by generate()
+    public static final String[] ALGORITHMS = {"backtracker", "kruskal", "wilson", "eller", "rooms"};
+
+    // Side length of a room, and chance of an extra door, for "rooms"
+    private static final int ROOM_SIZE = 4;
+    private static final double EXTRA_DOOR_PROBABILITY = 0.25;
+
+    /**
+     * Writes a maze with the given dimensions made by the named algorithm to
+     * out. If unsolvable is true the finish square is walled in, so there is
+     * no solution. out is flushed but not closed.
+     * @throws IllegalArgumentException if the algorithm or dimensions are
+     * not valid
+     */
+    public static void generate(String algorithm, int numColumns, int numRows, long seed,
+            boolean unsolvable, OutputStream out) throws IOException {
+        if (numColumns < 1 || numRows < 1) {
+            throw new IllegalArgumentException("A maze needs at least one row and one column");
+        }
+        Random random = new Random(seed);
+        RowWriter writer = new RowWriter(out, numColumns, numRows, unsolvable);
+        switch (algorithm) {
+            case "backtracker":
+                writer.writeGrid(backtracker(numRows, numColumns, random));
+                break;
+            case "kruskal":
+                writer.writeGrid(kruskal(numRows, numColumns, random));
+                break;
+            case "wilson":
+                writer.writeGrid(wilson(numRows, numColumns, random));
+                break;
+            case "eller":
+                eller(writer, numRows, numColumns, random);
+                break;
+            case "rooms":
+                rooms(writer, numRows, numColumns, random);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm " + algorithm);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Returns a grid with dimensions numRows x numColumns in which every
+     * square has both walls.
+     */
+    private static MazeGrid walledGrid(int numRows, int numColumns) {
+        MazeGrid grid = new MazeGrid(numRows, numColumns);
+        for (int square = 0; square < grid.size(); square++) {
+            grid.setWalls(square, MazeGrid.TOP_WALL | MazeGrid.RIGHT_WALL);
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the square next to the given one in the given direction,
+     * walls or not, or -1 at the edge of the grid.
+     */
+    private static int adjacent(MazeGrid grid, int square, int direction) {
+        int numColumns = grid.getNumColumns();
+        switch (direction) {
+            case MazeGrid.UP: return square >= numColumns ? square - numColumns : -1;
+            case MazeGrid.DOWN: return square < grid.size() - numColumns ? square + numColumns : -1;
+            case MazeGrid.LEFT: return square % numColumns != 0 ? square - 1 : -1;
+            default: return (square + 1) % numColumns != 0 ? square + 1 : -1;
+        }
+    }
+
+    /**
+     * Removes the wall between two adjacent squares.
+     */
+    private static void carve(MazeGrid grid, int a, int b) {
+        if (b < a) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        if (b - a == grid.getNumColumns()) {
+            grid.setWalls(b, grid.getWalls(b) & ~MazeGrid.TOP_WALL);
+        } else {
+            grid.setWalls(a, grid.getWalls(a) & ~MazeGrid.RIGHT_WALL);
+        }
+    }
+
+    /**
+     * Recursive backtracker: a random depth-first walk that carves into an
+     * unvisited neighbor when it can and backs up when it cannot.
+     */
+    private static MazeGrid backtracker(int numRows, int numColumns, Random random) {
+        MazeGrid grid = walledGrid(numRows, numColumns);
+        long[] visited = new long[(grid.size() + 63) / 64];
+        int[] stack = new int[grid.size()];
+        int[] candidates = new int[4];
+        int top = 0;
+        stack[top++] = 0;
+        visited[0] = 1L;
+        while (top > 0) {
+            int cur = stack[top - 1];
+            int count = 0;
+            for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                int next = adjacent(grid, cur, direction);
+                if (next >= 0 && (visited[next >>> 6] & (1L << next)) == 0) {
+                    candidates[count++] = next;
+                }
+            }
+            if (count == 0) {
+                top--;
+            } else {
+                int next = candidates[random.nextInt(count)];
+                carve(grid, cur, next);
+                visited[next >>> 6] |= 1L << next;
+                stack[top++] = next;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Kruskal's algorithm: knocks down walls in random order whenever the
+     * squares on either side are not yet connected, tracked with union-find.
+     */
+    private static MazeGrid kruskal(int numRows, int numColumns, Random random) {
+        MazeGrid grid = walledGrid(numRows, numColumns);
+        int n = grid.size();
+        // Wall 2 * square is the bottom of square, 2 * square + 1 its right
+        int[] walls = new int[2 * n];
+        int numWalls = 0;
+        for (int square = 0; square < n; square++) {
+            if (adjacent(grid, square, MazeGrid.DOWN) >= 0) {
+                walls[numWalls++] = 2 * square;
+            }
+            if (adjacent(grid, square, MazeGrid.RIGHT) >= 0) {
+                walls[numWalls++] = 2 * square + 1;
+            }
+        }
+        for (int i = numWalls - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = walls[i];
+            walls[i] = walls[j];
+            walls[j] = swap;
+        }
+
+        int[] parent = new int[n];
+        for (int square = 0; square < n; square++) {
+            parent[square] = square;
+        }
+        for (int i = 0; i < numWalls; i++) {
+            int a = walls[i] >>> 1;
+            int b = (walls[i] & 1) == 0 ? a + numColumns : a + 1;
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA != rootB) {
+                parent[rootA] = rootB;
+                carve(grid, a, b);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the representative of square's set, halving the path to it.
+     */
+    private static int find(int[] parent, int square) {
+        while (parent[square] != square) {
+            parent[square] = parent[parent[square]];
+            square = parent[square];
+        }
+        return square;
+    }
+
+    /**
+     * Wilson's algorithm: loop-erased random walks from each square outside
+     * the maze until they hit it. Every perfect maze is equally likely.
+     */
+    private static MazeGrid wilson(int numRows, int numColumns, Random random) {
+        MazeGrid grid = walledGrid(numRows, numColumns);
+        int n = grid.size();
+        long[] inMaze = new long[(n + 63) / 64];
+        // Direction the latest walk left each square in; later visits to a
+        // square overwrite it, which erases the loops
+        byte[] exit = new byte[n];
+        int root = random.nextInt(n);
+        inMaze[root >>> 6] |= 1L << root;
+
+        for (int first = 0; first < n; first++) {
+            if ((inMaze[first >>> 6] & (1L << first)) != 0) {
+                continue;
+            }
+            int cur = first;
+            while ((inMaze[cur >>> 6] & (1L << cur)) == 0) {
+                int direction;
+                int next;
+                do {
+                    direction = random.nextInt(4);
+                    next = adjacent(grid, cur, direction);
+                } while (next < 0);
+                exit[cur] = (byte) direction;
+                cur = next;
+            }
+            cur = first;
+            while ((inMaze[cur >>> 6] & (1L << cur)) == 0) {
+                int next = adjacent(grid, cur, exit[cur]);
+                carve(grid, cur, next);
+                inMaze[cur >>> 6] |= 1L << cur;
+                cur = next;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Eller's algorithm, written out one row at a time.
+     */
+    private static void eller(RowWriter writer, int numRows, int numColumns, Random random)
+            throws IOException {
+        EllerRows eller = new EllerRows(numColumns, random, 0.0);
+        byte[] walls = new byte[numColumns];
+        boolean[] topOpen = new boolean[numColumns];
+        for (int row = 0; row < numRows; row++) {
+            eller.nextRow(row == numRows - 1);
+            for (int col = 0; col < numColumns; col++) {
+                int bits = 0;
+                if (!topOpen[col]) {
+                    bits |= MazeGrid.TOP_WALL;
+                }
+                if (col == numColumns - 1 || !eller.rightOpen[col]) {
+                    bits |= MazeGrid.RIGHT_WALL;
+                }
+                walls[col] = (byte) bits;
+                topOpen[col] = eller.downOpen[col];
+            }
+            writer.writeRow(row, walls);
+        }
+    }
+
+    /**
+     * Square rooms with open interiors, joined by doors. Which rooms are
+     * joined is decided by Eller's algorithm over the grid of rooms, with
+     * extra doors added at random to make loops.
+     */
+    private static void rooms(RowWriter writer, int numRows, int numColumns, Random random)
+            throws IOException {
+        int roomColumns = (numColumns + ROOM_SIZE - 1) / ROOM_SIZE;
+        int roomRows = (numRows + ROOM_SIZE - 1) / ROOM_SIZE;
+        EllerRows eller = new EllerRows(roomColumns, random, EXTRA_DOOR_PROBABILITY);
+        byte[] walls = new byte[numColumns];
+        // Column of the door in the top wall of each room in the current band
+        // of rooms, and row within the band of the door in its right wall;
+        // -1 where there is no door
+        int[] topDoor = new int[roomColumns];
+        int[] rightDoor = new int[roomColumns];
+        Arrays.fill(topDoor, -1);
+
+        for (int roomRow = 0; roomRow < roomRows; roomRow++) {
+            int bandStart = roomRow * ROOM_SIZE;
+            int bandHeight = Math.min(ROOM_SIZE, numRows - bandStart);
+            eller.nextRow(roomRow == roomRows - 1);
+            for (int roomCol = 0; roomCol < roomColumns; roomCol++) {
+                rightDoor[roomCol] = eller.rightOpen[roomCol] ? random.nextInt(bandHeight) : -1;
+            }
+
+            for (int offset = 0; offset < bandHeight; offset++) {
+                for (int col = 0; col < numColumns; col++) {
+                    int roomCol = col / ROOM_SIZE;
+                    int roomEnd = Math.min(numColumns, (roomCol + 1) * ROOM_SIZE) - 1;
+                    int bits = 0;
+                    if (offset == 0 && topDoor[roomCol] != col - roomCol * ROOM_SIZE) {
+                        bits |= MazeGrid.TOP_WALL;
+                    }
+                    if (col == numColumns - 1 || (col == roomEnd && rightDoor[roomCol] != offset)) {
+                        bits |= MazeGrid.RIGHT_WALL;
+                    }
+                    walls[col] = (byte) bits;
+                }
+                writer.writeRow(bandStart + offset, walls);
+            }
+
+            for (int roomCol = 0; roomCol < roomColumns; roomCol++) {
+                int roomWidth = Math.min(ROOM_SIZE, numColumns - roomCol * ROOM_SIZE);
+                topDoor[roomCol] = eller.downOpen[roomCol] ? random.nextInt(roomWidth) : -1;
+            }
+        }
+    }
+
+    /**
+     * EllerRows generates a maze one row at a time, keeping only the sets
+     * of the squares in the current row. After nextRow(), rightOpen says
+     * which squares of the row are joined to their right neighbor, and
+     * downOpen which are joined to the square below.
+     */
+    private static class EllerRows {
+        private final int width;
+        private final Random random;
+        private final double loopProbability;
+
+        boolean[] rightOpen;
+        boolean[] downOpen;
+
+        // Set label of each square in the row, or -1 before one is given.
+        // Labels are below width, since a row never has more sets than
+        // squares, and are merged with union-find while a row is built
+        private final int[] label;
+        private final int[] parent;
+        private final int[] count;
+        private final int[] seen;
+        private final boolean[] hasDown;
+        private final boolean[] used;
+
+        EllerRows(int width, Random random, double loopProbability) {
+            this.width = width;
+            this.random = random;
+            this.loopProbability = loopProbability;
+            rightOpen = new boolean[width];
+            downOpen = new boolean[width];
+            label = new int[width];
+            parent = new int[width];
+            count = new int[width];
+            seen = new int[width];
+            hasDown = new boolean[width];
+            used = new boolean[width];
+            Arrays.fill(label, -1);
+        }
+
+        /**
+         * Generates the next row. In the last row every set is joined and
+         * nothing opens downward.
+         */
+        void nextRow(boolean lastRow) {
+            // Give squares that were not joined from above a fresh set
+            Arrays.fill(used, false);
+            for (int col = 0; col < width; col++) {
+                if (label[col] >= 0) {
+                    used[label[col]] = true;
+                }
+            }
+            int free = 0;
+            for (int col = 0; col < width; col++) {
+                if (label[col] < 0) {
+                    while (used[free]) {
+                        free++;
+                    }
+                    used[free] = true;
+                    label[col] = free;
+                }
+            }
+            for (int set = 0; set < width; set++) {
+                parent[set] = set;
+            }
+
+            // Join neighbors in different sets at random (all of them in
+            // the last row); neighbors already connected only get a loop
+            for (int col = 0; col + 1 < width; col++) {
+                int a = find(parent, label[col]);
+                int b = find(parent, label[col + 1]);
+                if (a != b) {
+                    rightOpen[col] = lastRow || random.nextBoolean();
+                    if (rightOpen[col]) {
+                        parent[b] = a;
+                    }
+                } else {
+                    rightOpen[col] = random.nextDouble() < loopProbability;
+                }
+            }
+            rightOpen[width - 1] = false;
+
+            if (lastRow) {
+                Arrays.fill(downOpen, false);
+                return;
+            }
+
+            // Open some squares downward, making sure every set gets at
+            // least one so that it stays connected to the rest of the maze
+            Arrays.fill(count, 0);
+            Arrays.fill(seen, 0);
+            Arrays.fill(hasDown, false);
+            for (int col = 0; col < width; col++) {
+                label[col] = find(parent, label[col]);
+                count[label[col]]++;
+            }
+            for (int col = 0; col < width; col++) {
+                int set = label[col];
+                seen[set]++;
+                boolean lastOfSet = seen[set] == count[set];
+                downOpen[col] = random.nextBoolean() || (lastOfSet && !hasDown[set]);
+                if (!downOpen[col] && random.nextDouble() < loopProbability) {
+                    downOpen[col] = true;
+                }
+                if (downOpen[col]) {
+                    hasDown[set] = true;
+                } else {
+                    label[col] = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * RowWriter writes the header and then rows of squares in the maze file
+     * format, one reused line buffer at a time.
+     */
+    private static class RowWriter {
+        private final OutputStream out;
+        private final int numColumns;
+        private final int numRows;
+        private final boolean unsolvable;
+        private final byte[] line;
+
+        RowWriter(OutputStream out, int numColumns, int numRows, boolean unsolvable) throws IOException {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+            this.numColumns = numColumns;
+            this.numRows = numRows;
+            this.unsolvable = unsolvable;
+            line = new byte[numColumns + 1];
+            String header = numColumns + " " + numRows + "\n"
+                    + "0 0\n"
+                    + (numColumns - 1) + " " + (numRows - 1) + "\n";
+            this.out.write(header.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * Writes a row given the wall bits of each of its squares.
+         */
+        void writeRow(int row, byte[] walls) throws IOException {
+            for (int col = 0; col < numColumns; col++) {
+                int bits = walls[col];
+                if (row == 0) {
+                    bits |= MazeGrid.TOP_WALL;
+                }
+                if (unsolvable && row == numRows - 1) {
+                    // Wall in the finish square from above and from the left
+                    if (col == numColumns - 1) {
+                        bits |= MazeGrid.TOP_WALL;
+                    } else if (col == numColumns - 2) {
+                        bits |= MazeGrid.RIGHT_WALL;
+                    }
+                }
+                line[col] = (byte) MazeGrid.descriptorFor(bits);
+            }
+            line[numColumns] = '\n';
+            out.write(line);
+        }
+
+        /**
+         * Writes every row of a grid.
+         */
+        void writeGrid(MazeGrid grid) throws IOException {
+            byte[] walls = new byte[numColumns];
+            for (int row = 0; row < numRows; row++) {
+                int rowStart = grid.index(row, 0);
+                for (int col = 0; col < numColumns; col++) {
+                    walls[col] = (byte) grid.getWalls(rowStart + col);
+                }
+                writeRow(row, walls);
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 5 || args.length > 6 || (args.length == 6 && !args[5].equals("--unsolvable"))) {
+            System.out.println("Usage: java MazeGenerator <algorithm> <columns> <rows> <seed> <file> [--unsolvable]");
+            System.out.println("Algorithms: " + String.join(", ", ALGORITHMS));
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(args[4])) {
+            generate(args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]),
+                    args.length == 6, out);
+        } catch (NumberFormatException e) {
+            System.err.println("Columns, rows and seed must be integers.");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Could not write " + args[4] + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.util.Arrays;
+
+/**
+* MazeGrid stores the walls of every square in a maze packed into a long[],
+* two bits per square, with a separate bitset of visited flags. Squares are
+* addressed by their row-major index (row * numColumns + col), so a maze with
+* hundreds of millions of squares costs a few bits per square instead of one
+* object per square.
+*
+* Solvers only read the walls and keep their own working state (see
+* SolveScratch), so a grid whose walls are not changing can be solved by any
+* number of threads at once. The visited flags are only used by MazeSquare
+* views and are not safe to change from several threads.
+*
+* Subclasses such as TiledMazeGrid may keep the wall bits somewhere else by
+* overriding getWalls and setWalls; everything else is built on those two.
+*/
+public class MazeGrid {
+    // Bit set in a square's wall bits when the square has a top wall.
+    public static final int TOP_WALL = 1;
+
+    // Bit set in a square's wall bits when the square has a right wall.
+    public static final int RIGHT_WALL = 2;
+
+    // Directions a solver can move in from a square.
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    // Number of squares whose wall bits fit in one long.
+    private static final int SQUARES_PER_WORD = 32;
+
+    private final int numRows;
+    private final int numColumns;
+
+    // Two wall bits per square, 32 squares per long; null in subclasses
+    // that store walls themselves
+    private final long[] walls;
+
+    // One visited bit per square, 64 squares per long; allocated the first
+    // time a square is marked
+    private long[] visited;
+
+    // Number of times setWall has changed a wall, so results computed from
+    // the grid can tell whether they are still current
+    private long editCount;
+
+    /**
+     * Creates a grid with the given dimensions where no square has any walls
+     * and no square has been visited.
+     */
+    public MazeGrid(int numRows, int numColumns) {
+        this(numRows, numColumns, true);
+    }
+
+    /**
+     * Creates a grid with the given dimensions, with or without the long[]
+     * that holds its walls. Subclasses that store walls elsewhere pass false.
+     */
+    protected MazeGrid(int numRows, int numColumns, boolean allocateWalls) {
+        long numSquares = (long) numRows * numColumns;
+        if (numRows < 0 || numColumns < 0 || numSquares > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported maze dimensions: "
+                    + numColumns + " x " + numRows);
+        }
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        if (allocateWalls) {
+            walls = new long[(int) ((numSquares + SQUARES_PER_WORD - 1) / SQUARES_PER_WORD)];
+        } else {
+            walls = null;
+        }
+    }
+
+    /**
+     * Returns the number of rows in this grid.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Returns the number of columns in this grid.
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Returns the number of squares in this grid.
+     */
+    public int size() {
+        return numRows * numColumns;
+    }
+
+    /**
+     * Returns the index of the square at the given row and column.
+     */
+    public int index(int row, int col) {
+        return row * numColumns + col;
+    }
+
+    /**
+     * Returns the row of the square with the given index.
+     */
+    public int row(int index) {
+        return index / numColumns;
+    }
+
+    /**
+     * Returns the column of the square with the given index.
+     */
+    public int column(int index) {
+        return index % numColumns;
+    }
+
+    /**
+     * Returns the wall bits (TOP_WALL and/or RIGHT_WALL) of the given square.
+     */
+    public int getWalls(int index) {
+        return (int) (walls[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * Replaces the wall bits of the given square.
+     */
+    public void setWalls(int index, int wallBits) {
+        int word = index >>> 5;
+        int shift = (index & 31) << 1;
+        walls[word] = (walls[word] & ~(3L << shift)) | ((long) (wallBits & 3) << shift);
+    }
+
+    /**
+     * Adds or removes one wall (TOP_WALL or RIGHT_WALL) of the given square
+     * and counts the change in getEditCount().
+     * @return true if the wall was changed, false if it was already as asked
+     */
+    public boolean setWall(int index, int wall, boolean present) {
+        int wallBits = getWalls(index);
+        int changed = present ? wallBits | wall : wallBits & ~wall;
+        if (changed == wallBits) {
+            return false;
+        }
+        setWalls(index, changed);
+        editCount++;
+        return true;
+    }
+
+    /**
+     * Returns the number of walls changed with setWall so far.
+     */
+    public long getEditCount() {
+        return editCount;
+    }
+
+    /**
+     * Returns true if the given square has a top wall.
+     */
+    public boolean hasTopWall(int index) {
+        return (getWalls(index) & TOP_WALL) != 0;
+    }
+
+    /**
+     * Returns true if the given square has a right wall.
+     */
+    public boolean hasRightWall(int index) {
+        return (getWalls(index) & RIGHT_WALL) != 0;
+    }
+
+    /**
+     * Returns the index of the square reached by moving from the given square
+     * in the given direction (UP, DOWN, LEFT or RIGHT), or -1 if a wall or the
+     * edge of the maze is in the way.
+     */
+    public int neighbor(int index, int direction) {
+        switch (direction) {
+            case UP:
+                if (index >= numColumns && !hasTopWall(index)) {
+                    return index - numColumns;
+                }
+                return -1;
+            case DOWN:
+                // Compared before adding, since index + numColumns can
+                // overflow on the last row of a grid near Integer.MAX_VALUE
+                // squares
+                if (index < size() - numColumns && !hasTopWall(index + numColumns)) {
+                    return index + numColumns;
+                }
+                return -1;
+            case LEFT:
+                if (index % numColumns != 0 && !hasRightWall(index - 1)) {
+                    return index - 1;
+                }
+                return -1;
+            default:
+                if ((index + 1) % numColumns != 0 && !hasRightWall(index)) {
+                    return index + 1;
+                }
+                return -1;
+        }
+    }
+
+    /**
+     * Returns true if the given square has been visited.
+     */
+    public boolean isVisited(int index) {
+        return visited != null && (visited[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks the given square as visited.
+     */
+    public void markVisited(int index) {
+        if (visited == null) {
+            visited = new long[(int) (((long) size() + 63) / 64)];
+        }
+        visited[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Marks the given square as unvisited.
+     */
+    public void unmarkVisited(int index) {
+        if (visited != null) {
+            visited[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Marks every square in this grid as unvisited.
+     */
+    public void unmarkAll() {
+        if (visited != null) {
+            Arrays.fill(visited, 0L);
+        }
+    }
+
+    /**
+     * Returns the wall bits described by a maze file character
+     * (7 = top and right, | is just right, _ is just top, and * is neither),
+     * or -1 if the character is not a valid descriptor.
+     */
+    public static int wallsFor(char descriptor) {
+        switch (descriptor) {
+            case '7': return TOP_WALL | RIGHT_WALL;
+            case '|': return RIGHT_WALL;
+            case '_': return TOP_WALL;
+            case '*': return 0;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Returns the maze file character describing the given wall bits.
+     */
+    public static char descriptorFor(int wallBits) {
+        switch (wallBits & 3) {
+            case TOP_WALL | RIGHT_WALL: return '7';
+            case RIGHT_WALL: return '|';
+            case TOP_WALL: return '_';
+            default: return '*';
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* MazeLoadTest measures a running MazeServer: several clients, each on its
+* own connection and thread, send requests for random routes in one maze as
+* fast as the server answers them, and the throughput and latency of the
+* answers are printed at the end.
+*/
+public class MazeLoadTest {
+    private final int port;
+    private final String mazeFile;
+    private final String command;
+    private final int clients;
+    private final int requestsPerClient;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+    private MazeLoadTest(int port, String mazeFile, String command, int clients, int requestsPerClient) {
+        this.port = port;
+        this.mazeFile = mazeFile;
+        this.command = command;
+        this.clients = clients;
+        this.requestsPerClient = requestsPerClient;
+    }
+
+    /**
+     * Loads the maze on the server, runs every client to completion and
+     * prints the results.
+     */
+    private void run() throws IOException, InterruptedException {
+        int numRows;
+        int numColumns;
+        try (MazeClient client = new MazeClient(port)) {
+            String[] answer = client.request("LOAD " + mazeFile).split(" ");
+            if (!answer[0].equals("OK")) {
+                System.err.println("The server could not load " + mazeFile);
+                return;
+            }
+            numRows = Integer.parseInt(answer[1]);
+            numColumns = Integer.parseInt(answer[2]);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        long began = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            Thread thread = new Thread(() -> runClient(new Random(seed), numRows, numColumns));
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        long total = latency.getTotalCount();
+        System.out.printf("%-10s %8s %10s %12s %10s %10s %10s %8s%n",
+                "request", "clients", "requests", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        System.out.printf("%-10s %8d %10d %12.1f %10.3f %10.3f %10.3f %8d%n",
+                command, clients, total, total / seconds, latency.getValueAtPercentile(50) / 1e6,
+                latency.getValueAtPercentile(99) / 1e6, latency.getMax() / 1e6, errors.get());
+    }
+
+    private void runClient(Random random, int numRows, int numColumns) {
+        try (MazeClient client = new MazeClient(port)) {
+            for (int i = 0; i < requestsPerClient; i++) {
+                String request;
+                if (command.equals("SOLVE") || command.equals("RENDER")) {
+                    request = command + " " + mazeFile + " bfs";
+                } else {
+                    request = command + " " + mazeFile + " " + random.nextInt(numRows) + " "
+                            + random.nextInt(numColumns) + " " + random.nextInt(numRows) + " "
+                            + random.nextInt(numColumns);
+                }
+                long sent = System.nanoTime();
+                String answer = client.request(request);
+                long nanos = System.nanoTime() - sent;
+                if (!answer.startsWith("OK")) {
+                    errors.incrementAndGet();
+                }
+                synchronized (latency) {
+                    latency.record(nanos);
+                }
+            }
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            System.err.println("Client failed: " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String usage = "Usage: java MazeLoadTest <port> <maze file> [--clients=8] [--requests=1000]"
+                + " [--command=route|distance|solve|render]";
+        if (args.length < 2) {
+            System.out.println(usage);
+            return;
+        }
+        int port;
+        int clients = 8;
+        int requests = 1000;
+        String command = "ROUTE";
+        try {
+            port = Integer.parseInt(args[0]);
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].startsWith("--clients=")) {
+                    clients = Integer.parseInt(args[i].substring("--clients=".length()));
+                } else if (args[i].startsWith("--requests=")) {
+                    requests = Integer.parseInt(args[i].substring("--requests=".length()));
+                } else if (args[i].startsWith("--command=")) {
+                    command = args[i].substring("--command=".length()).toUpperCase();
+                    if (!command.matches("ROUTE|DISTANCE|SOLVE|RENDER")) {
+                        throw new IllegalArgumentException(command);
+                    }
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (clients < 1 || requests < 1) {
+                throw new IllegalArgumentException("clients");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(usage);
+            return;
+        }
+        new MazeLoadTest(port, args[1], command, clients, requests).run();
+    }
+}
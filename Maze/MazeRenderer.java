@@ -0,0 +1,479 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+* MazeRenderer draws a maze as text, in the same layout Maze.print has
+* always used: four lines of text per row of squares, six characters per
+* square, and a closing line for the bottom wall. Each line is assembled in a
+* reusable byte array and written to a buffered stream in one call, instead
+* of several synchronized print calls per square.
+*
+* It can also draw just a viewport (a rectangle of squares) of the maze, and
+* draw as a PPM image with one pixel per square, per wall and per corner
+* post. Output is streamed a band of rows at a time, so only one line or
+* pixel row is ever held in memory. A renderer reads walls either from a
+* MazeGrid (including a TiledMazeGrid) or straight from a BinaryMazeFile,
+* whose bands are read only as they are drawn; either way, only the squares
+* in the viewport are read, plus the column to its left and the row below
+* it, whose walls form the viewport's left and bottom edges.
+*/
+public class MazeRenderer {
+    private static final byte[] TOP_WALL = bytes("-----+");
+    private static final byte[] TOP_OPEN = bytes("     +");
+    private static final byte[] RIGHT_WALL = bytes("     |");
+    private static final byte[] RIGHT_OPEN = bytes("      ");
+    private static final byte[] START = bytes("  S  ");
+    private static final byte[] FINISH = bytes("  F  ");
+    private static final byte[] ON_PATH = bytes("  *  ");
+    private static final byte[] EMPTY = bytes("     ");
+
+    // Pixel colors of the image, as red, green, blue
+    private static final byte[] WALL_COLOR = {0, 0, 0};
+    private static final byte[] OPEN_COLOR = {(byte) 255, (byte) 255, (byte) 255};
+    private static final byte[] PATH_COLOR = {(byte) 220, 40, 40};
+    private static final byte[] START_COLOR = {0, (byte) 160, 0};
+    private static final byte[] FINISH_COLOR = {0, 0, (byte) 200};
+
+    // Size of the buffer between the line assembly and the output stream
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Where walls come from: grid if not null, otherwise file
+    private final MazeGrid grid;
+    private final BinaryMazeFile file;
+    private final int bandRows;
+
+    private final int numRows;
+    private final int numColumns;
+    private final int start;
+    private final int finish;
+
+    /**
+     * Creates a renderer for the given grid with the given start and finish
+     * square indices.
+     */
+    public MazeRenderer(MazeGrid grid, int start, int finish) {
+        this.grid = grid;
+        this.file = null;
+        this.bandRows = BinaryMazeFile.DEFAULT_BAND_ROWS;
+        this.numRows = grid.getNumRows();
+        this.numColumns = grid.getNumColumns();
+        this.start = start;
+        this.finish = finish;
+    }
+
+    /**
+     * Creates a renderer that reads the maze in file one band of rows at a
+     * time as it draws, so the maze is never loaded whole.
+     */
+    public MazeRenderer(BinaryMazeFile file) {
+        this.grid = null;
+        this.file = file;
+        this.bandRows = file.getBandRows();
+        this.numRows = file.getNumRows();
+        this.numColumns = file.getNumColumns();
+        this.start = file.getStartRow() * numColumns + file.getStartColumn();
+        this.finish = file.getFinishRow() * numColumns + file.getFinishColumn();
+    }
+
+    /**
+     * Returns a bitset over the squares of a grid with the given number of
+     * squares, with the bit of every square on path set.
+     */
+    public static long[] pathBits(int[] path, int numSquares) {
+        long[] bits = new long[(numSquares + 63) / 64];
+        for (int square : path) {
+            bits[square >>> 6] |= 1L << square;
+        }
+        return bits;
+    }
+
+    /**
+     * Writes the maze to out, marking the squares whose bits are set in
+     * onPath (see pathBits) with asterisks. onPath may be null to draw the
+     * maze without a solution. out is flushed but not closed.
+     */
+    public void render(OutputStream out, long[] onPath) throws IOException {
+        drawText(out, new PathBits(onPath, 0, 0, numColumns), 0, 0, numRows, numColumns);
+    }
+
+    /**
+     * Writes the squares of the maze from (row, col) to (row + height - 1,
+     * col + width - 1) to out as text, in the same layout as render(),
+     * marking the squares on path (grid indices; may be null) with
+     * asterisks. out is flushed but not closed.
+     * @throws IndexOutOfBoundsException if the viewport is not inside the
+     * maze
+     */
+    public void renderViewport(OutputStream out, int[] path, int row, int col, int height, int width)
+            throws IOException {
+        checkViewport(row, col, height, width);
+        drawText(out, viewportBits(path, row, col, height, width), row, col, height, width);
+    }
+
+    /**
+     * Writes the same viewport as renderViewport() to out as a binary PPM
+     * image, two pixels per square in each direction plus one: a pixel for
+     * each square, one for each wall or gap between squares and one for each
+     * corner post. Walls are black, open space white, and the path red
+     * (with the start green and the finish blue). out is flushed but not
+     * closed.
+     * @throws IndexOutOfBoundsException if the viewport is not inside the
+     * maze
+     */
+    public void renderImage(OutputStream out, int[] path, int row, int col, int height, int width)
+            throws IOException {
+        checkViewport(row, col, height, width);
+        PathBits onPath = viewportBits(path, row, col, height, width);
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        int pixelWidth = 2 * width + 1;
+        buffered.write(bytes("P6\n" + pixelWidth + " " + (2 * height + 1) + "\n255\n"));
+        byte[] pixels = new byte[3 * pixelWidth];
+
+        Band band = null;
+        for (int r = row; r < row + height; r++) {
+            if (band == null || !band.covers(r)) {
+                band = readBand(r, row + height, col, width);
+            }
+            // The row of corner posts and top walls above row r
+            int x = setPixel(pixels, 0, WALL_COLOR);
+            for (int c = col; c < col + width; c++) {
+                boolean passage = r > row && onPath.contains(r, c) && onPath.contains(r - 1, c);
+                x = setPixel(pixels, x, band.hasTopWall(r, c) ? WALL_COLOR : passage ? PATH_COLOR : OPEN_COLOR);
+                x = setPixel(pixels, x, WALL_COLOR);
+            }
+            buffered.write(pixels);
+
+            // The squares of row r and the walls between them
+            boolean leftWall = col == 0 || band.hasRightWall(r, col - 1);
+            x = setPixel(pixels, 0, leftWall ? WALL_COLOR : OPEN_COLOR);
+            for (int c = col; c < col + width; c++) {
+                int square = r * numColumns + c;
+                byte[] color = OPEN_COLOR;
+                if (square == start) {
+                    color = START_COLOR;
+                } else if (square == finish) {
+                    color = FINISH_COLOR;
+                } else if (onPath.contains(r, c)) {
+                    color = PATH_COLOR;
+                }
+                x = setPixel(pixels, x, color);
+                boolean passage = c + 1 < col + width && onPath.contains(r, c) && onPath.contains(r, c + 1);
+                x = setPixel(pixels, x, band.hasRightWall(r, c) ? WALL_COLOR : passage ? PATH_COLOR : OPEN_COLOR);
+            }
+            buffered.write(pixels);
+        }
+
+        // The bottom edge, which is the top walls of the row below
+        int bottom = row + height;
+        if (bottom < numRows && (band == null || !band.covers(bottom))) {
+            band = readBand(bottom, bottom + 1, col, width);
+        }
+        int x = setPixel(pixels, 0, WALL_COLOR);
+        for (int c = col; c < col + width; c++) {
+            x = setPixel(pixels, x, bottom == numRows || band.hasTopWall(bottom, c) ? WALL_COLOR : OPEN_COLOR);
+            x = setPixel(pixels, x, WALL_COLOR);
+        }
+        buffered.write(pixels);
+        buffered.flush();
+    }
+
+    /**
+     * Draws the viewport as text, a band of rows at a time.
+     */
+    private void drawText(OutputStream out, PathBits onPath, int row, int col, int height, int width)
+            throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        byte[] line = new byte[1 + 6 * width + 1];
+        Band band = null;
+        for (int r = row; r < row + height; r++) {
+            if (band == null || !band.covers(r)) {
+                band = readBand(r, row + height, col, width);
+            }
+            // The left edge is the right wall of the square to the left
+            byte leftEdge = (byte) (col == 0 || band.hasRightWall(r, col - 1) ? '|' : ' ');
+            for (int charInRow = 0; charInRow < 4; charInRow++) {
+                // Need to start with the initial left wall.
+                line[0] = charInRow == 0 ? (byte) '+' : leftEdge;
+                int length = 1;
+                for (int c = col; c < col + width; c++) {
+                    if (charInRow == 0) {
+                        length = append(line, band.hasTopWall(r, c) ? TOP_WALL : TOP_OPEN, length);
+                    } else if (charInRow == 1 || charInRow == 3) {
+                        length = append(line, band.hasRightWall(r, c) ? RIGHT_WALL : RIGHT_OPEN, length);
+                    } else {
+                        // This is the row where start/finish should be displayed if relevant
+                        int square = r * numColumns + c;
+                        if (square == start) {
+                            length = append(line, START, length);
+                        } else if (square == finish) {
+                            length = append(line, FINISH, length);
+                        } else if (onPath.contains(r, c)) {
+                            length = append(line, ON_PATH, length);
+                        } else {
+                            length = append(line, EMPTY, length);
+                        }
+                        line[length++] = (byte) (band.hasRightWall(r, c) ? '|' : ' ');
+                    }
+                }
+                line[length++] = '\n';
+                buffered.write(line, 0, length);
+            }
+        }
+
+        // The bottom of the maze is always a wall; the bottom of a viewport
+        // is the top walls of the row below it
+        int bottom = row + height;
+        if (bottom < numRows && (band == null || !band.covers(bottom))) {
+            band = readBand(bottom, bottom + 1, col, width);
+        }
+        line[0] = '+';
+        int length = 1;
+        for (int c = col; c < col + width; c++) {
+            length = append(line, bottom == numRows || band.hasTopWall(bottom, c) ? TOP_WALL : TOP_OPEN, length);
+        }
+        line[length++] = '\n';
+        buffered.write(line, 0, length);
+        buffered.flush();
+    }
+
+    private void checkViewport(int row, int col, int height, int width) {
+        if (row < 0 || col < 0 || height < 0 || width < 0
+                || (long) row + height > numRows || (long) col + width > numColumns) {
+            throw new IndexOutOfBoundsException("Viewport is not inside the maze");
+        }
+    }
+
+    /**
+     * Returns the walls of the rows from first up to the next band boundary
+     * (but not past end), plus the row after them if there is one, and of
+     * the columns from col - 1 (if there is one) to col + width - 1.
+     */
+    private Band readBand(int first, int end, int col, int width) throws IOException {
+        if (grid != null) {
+            return new Band(grid, 0, 0, numRows);
+        }
+        int last = Math.min(end, (first / bandRows + 1) * bandRows);
+        int height = Math.min(last + 1, numRows) - first;
+        int left = Math.max(col - 1, 0);
+        try {
+            return new Band(file.readRegion(first, left, height, col + width - left), first, left, last);
+        } catch (MazeFormatException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Band holds walls read for some rows of the maze, addressed by maze
+     * row and column.
+     */
+    private static class Band {
+        private final MazeGrid walls;
+        private final int firstRow;
+        private final int firstColumn;
+        // Rows before this are drawn from this band
+        private final int endRow;
+
+        Band(MazeGrid walls, int firstRow, int firstColumn, int endRow) {
+            this.walls = walls;
+            this.firstRow = firstRow;
+            this.firstColumn = firstColumn;
+            this.endRow = endRow;
+        }
+
+        boolean covers(int row) {
+            return row >= firstRow && row < endRow;
+        }
+
+        boolean hasTopWall(int row, int col) {
+            return walls.hasTopWall((row - firstRow) * walls.getNumColumns() + col - firstColumn);
+        }
+
+        boolean hasRightWall(int row, int col) {
+            return walls.hasRightWall((row - firstRow) * walls.getNumColumns() + col - firstColumn);
+        }
+    }
+
+    /**
+     * Returns the squares of path inside the viewport as a bitset over the
+     * viewport alone.
+     */
+    private PathBits viewportBits(int[] path, int row, int col, int height, int width) {
+        if (path == null) {
+            return new PathBits(null, row, col, width);
+        }
+        long[] bits = new long[(int) (((long) height * width + 63) / 64)];
+        for (int square : path) {
+            int r = square / numColumns - row;
+            int c = square % numColumns - col;
+            if (r >= 0 && r < height && c >= 0 && c < width) {
+                int bit = r * width + c;
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new PathBits(bits, row, col, width);
+    }
+
+    /**
+     * PathBits is a bitset of the squares on a path, over a rectangle of
+     * the maze starting at (firstRow, firstColumn) that is width squares
+     * wide. For the whole maze, bit numbers are grid indices.
+     */
+    private static class PathBits {
+        private final long[] bits;
+        private final int firstRow;
+        private final int firstColumn;
+        private final int width;
+
+        PathBits(long[] bits, int firstRow, int firstColumn, int width) {
+            this.bits = bits;
+            this.firstRow = firstRow;
+            this.firstColumn = firstColumn;
+            this.width = width;
+        }
+
+        boolean contains(int row, int col) {
+            if (bits == null) {
+                return false;
+            }
+            int bit = (row - firstRow) * width + col - firstColumn;
+            return (bits[bit >>> 6] & (1L << bit)) != 0;
+        }
+    }
+
+    /**
+     * Copies piece into line at the given position and returns the
+     * position just after it.
+     */
+    private static int append(byte[] line, byte[] piece, int position) {
+        System.arraycopy(piece, 0, line, position, piece.length);
+        return position + piece.length;
+    }
+
+    private static int setPixel(byte[] pixels, int x, byte[] color) {
+        System.arraycopy(color, 0, pixels, x, 3);
+        return x + 3;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Draws a maze file without solving it. Binary maze files are read a
+     * band at a time and tile files a tile at a time, so neither is loaded
+     * whole; text files are loaded first.
+     */
+    public static void main(String[] args) {
+        String usage = "Usage: java MazeRenderer <maze file> [--viewport=<row>,<col>,<height>,<width>]"
+                + " [--ppm] [--out=<file>]";
+        if (args.length == 0) {
+            System.out.println(usage);
+            return;
+        }
+        int[] viewport = null;
+        boolean image = false;
+        String outFile = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--viewport=")) {
+                viewport = parseViewport(args[i].substring("--viewport=".length()));
+                if (viewport == null) {
+                    System.out.println(usage);
+                    return;
+                }
+            } else if (args[i].equals("--ppm")) {
+                image = true;
+            } else if (args[i].startsWith("--out=")) {
+                outFile = args[i].substring("--out=".length());
+            } else {
+                System.out.println(usage);
+                return;
+            }
+        }
+
+        try {
+            // Standard output is only flushed by the renderer, never closed
+            if (outFile == null) {
+                drawFile(args[0], System.out, viewport, image);
+            } else {
+                try (OutputStream out = new FileOutputStream(outFile)) {
+                    drawFile(args[0], out, viewport, image);
+                }
+            }
+        } catch (MazeFormatException e) {
+            System.err.println(e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Could not draw " + args[0] + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Draws the maze in fileName to out, reading it the cheapest way its
+     * format allows.
+     */
+    private static void drawFile(String fileName, OutputStream out, int[] viewport, boolean image)
+            throws IOException, MazeFormatException {
+        if (BinaryMazeFile.isBinaryMazeFile(fileName)) {
+            try (BinaryMazeFile file = new BinaryMazeFile(fileName)) {
+                draw(new MazeRenderer(file), out, viewport, image);
+            }
+        } else if (TiledMazeGrid.isTileFile(fileName)) {
+            try (TiledMazeGrid tiles = TiledMazeGrid.open(fileName, TiledMazeGrid.DEFAULT_CACHE_TILES, false)) {
+                draw(new MazeRenderer(tiles, tiles.index(tiles.getStartRow(), tiles.getStartColumn()),
+                        tiles.index(tiles.getFinishRow(), tiles.getFinishColumn())), out, viewport, image);
+            }
+        } else {
+            Maze maze = new Maze();
+            if (!maze.load(fileName)) {
+                return;
+            }
+            if (viewport == null) {
+                viewport = new int[] {0, 0, maze.getNumRows(), maze.getNumColumns()};
+            }
+            if (image) {
+                maze.renderImage(out, null, viewport[0], viewport[1], viewport[2], viewport[3]);
+            } else {
+                maze.renderViewport(out, null, viewport[0], viewport[1], viewport[2], viewport[3]);
+            }
+        }
+    }
+
+    private static void draw(MazeRenderer renderer, OutputStream out, int[] viewport, boolean image)
+            throws IOException {
+        if (viewport == null) {
+            viewport = new int[] {0, 0, renderer.numRows, renderer.numColumns};
+        }
+        if (image) {
+            renderer.renderImage(out, null, viewport[0], viewport[1], viewport[2], viewport[3]);
+        } else {
+            renderer.renderViewport(out, null, viewport[0], viewport[1], viewport[2], viewport[3]);
+        }
+    }
+
+    /**
+     * Returns the row, column, height and width written in text as four
+     * comma-separated numbers, or null if text is not that.
+     */
+    static int[] parseViewport(String text) {
+        String[] parts = text.split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        int[] viewport = new int[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                viewport[i] = Integer.parseInt(parts[i].trim());
+                if (viewport[i] < 0) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return viewport;
+    }
+}
@@ -0,0 +1,550 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* MazeServer keeps mazes loaded between requests, so solving one costs
+* neither JVM startup nor a load. Requests are lines of text, read from
+* standard input or from clients on a local socket (see MazeClient):
+*
+*   LOAD <file>                       OK <rows> <columns>
+*   SOLVE <file> [<algorithm>]        OK <squares> <row>,<col> ...
+*   ROUTE <file> <sr> <sc> <fr> <fc>  OK <squares> <row>,<col> ...
+*   DISTANCE <file> <sr> <sc> <fr> <fc>  OK <steps>, or OK -1 if no route
+*   RENDER <file> [<algorithm>]       OK <lines>, then the maze, one row of
+*                                     text per line, solved if an algorithm
+*                                     is given
+*   EVICT <file>                      OK
+*   STATS                             OK <JSON summary of the server>
+*   QUIT                              closes the connection
+*
+* Anything that goes wrong is answered with "ERROR <message>". File names
+* may not contain spaces.
+*
+* Each maze is loaded once, on first use, and cached by its absolute path.
+* Requests are handled concurrently on virtual threads when the JVM has them
+* and on a thread pool otherwise. Answers to SOLVE are cached per algorithm,
+* and ROUTE and DISTANCE requests on the same maze that arrive while a batch
+* is running are answered together by the next batch, through
+* Maze.solveBatch and Maze.getDistances. A client may send many requests
+* without waiting; answers come back in the order the requests were sent.
+* Only SOLVE, ROUTE, DISTANCE and RENDER, which just read a maze, overlap
+* one another; LOAD, EVICT and STATS wait until every earlier request on
+* the connection has been answered, so EVICT then SOLVE solves a fresh load
+* and STATS counts the requests sent before it.
+*/
+public class MazeServer {
+    // Most requests from one connection being handled at once
+    private static final int MAX_PIPELINED = 256;
+
+    private final ConcurrentHashMap<String, CompletableFuture<CachedMaze>> mazes = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedRoutes = new AtomicLong();
+    // Guarded by itself
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Creates a server with no mazes loaded.
+     */
+    public MazeServer() {
+        ExecutorService virtual = null;
+        try {
+            // Looked up by name so the server still compiles and runs on
+            // JVMs without virtual threads
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            virtual = (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            virtual = null;
+        }
+        virtualThreads = virtual != null;
+        executor = virtualThreads ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns true if requests are handled on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Answers one request line.
+     * @return the response, without a final line break
+     */
+    public String handle(String request) {
+        long began = System.nanoTime();
+        requests.incrementAndGet();
+        String response;
+        try {
+            response = answer(request.trim().split("\\s+"));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | IOException e) {
+            response = "ERROR " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = "ERROR Interrupted";
+        }
+        if (response.startsWith("ERROR")) {
+            errors.incrementAndGet();
+        }
+        synchronized (latency) {
+            latency.record(System.nanoTime() - began);
+        }
+        return response;
+    }
+
+    private String answer(String[] words) throws IOException, InterruptedException {
+        String command = words[0].toUpperCase();
+        switch (command) {
+            case "LOAD": {
+                checkArguments(words, 2, 2, "LOAD <file>");
+                Maze maze = getMaze(words[1]).maze;
+                return "OK " + maze.getNumRows() + " " + maze.getNumColumns();
+            }
+            case "SOLVE": {
+                checkArguments(words, 2, 3, "SOLVE <file> [<algorithm>]");
+                CachedMaze cached = getMaze(words[1]);
+                return "OK " + formatPath(cached.maze, cached.solve(words.length == 3 ? words[2] : "dfs"));
+            }
+            case "ROUTE":
+            case "DISTANCE": {
+                checkArguments(words, 6, 6, command + " <file> <start row> <start column> <finish row> <finish column>");
+                CachedMaze cached = getMaze(words[1]);
+                RouteQuery query = new RouteQuery(parseInt(words[2]), parseInt(words[3]),
+                        parseInt(words[4]), parseInt(words[5]));
+                if (!cached.contains(query)) {
+                    throw new IndexOutOfBoundsException("Route " + query + " is not in maze");
+                }
+                boolean distance = command.equals("DISTANCE");
+                int[] answer = cached.route(query, distance);
+                return "OK " + (distance ? Integer.toString(answer[0]) : formatPath(cached.maze, answer));
+            }
+            case "RENDER": {
+                checkArguments(words, 2, 3, "RENDER <file> [<algorithm>]");
+                CachedMaze cached = getMaze(words[1]);
+                int[] solution = words.length == 3 ? cached.solve(words[2]) : null;
+                ByteArrayOutputStream text = new ByteArrayOutputStream();
+                cached.maze.render(text, solution);
+                String rendered = text.toString(StandardCharsets.UTF_8);
+                int lines = 0;
+                for (int i = 0; i < rendered.length(); i++) {
+                    if (rendered.charAt(i) == '\n') {
+                        lines++;
+                    }
+                }
+                if (lines == 0) {
+                    return "OK 0";
+                }
+                // The rendered maze ends with a line break already
+                return "OK " + lines + "\n" + rendered.substring(0, rendered.length() - 1);
+            }
+            case "EVICT": {
+                checkArguments(words, 2, 2, "EVICT <file>");
+                mazes.remove(keyFor(words[1]));
+                return "OK";
+            }
+            case "STATS":
+                return "OK " + statsJson();
+            default:
+                throw new IllegalArgumentException("Unknown request " + words[0]
+                        + ". Please send LOAD, SOLVE, ROUTE, DISTANCE, RENDER, EVICT, STATS or QUIT.");
+        }
+    }
+
+    private static void checkArguments(String[] words, int min, int max, String usage) {
+        if (words.length < min || words.length > max) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static int parseInt(String word) {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + word);
+        }
+    }
+
+    /**
+     * Returns the number of squares on path followed by each square's
+     * row,column.
+     */
+    private static String formatPath(Maze maze, int[] path) {
+        StringBuilder text = new StringBuilder().append(path.length);
+        int numColumns = maze.getNumColumns();
+        for (int square : path) {
+            text.append(' ').append(square / numColumns).append(',').append(square % numColumns);
+        }
+        return text.toString();
+    }
+
+    private static String keyFor(String fileName) {
+        return Paths.get(fileName).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Returns the cached maze loaded from fileName, loading it if this is the
+     * first request for it. Concurrent first requests share one load.
+     */
+    private CachedMaze getMaze(String fileName) throws IOException, InterruptedException {
+        String key = keyFor(fileName);
+        CompletableFuture<CachedMaze> loading = mazes.get(key);
+        if (loading == null) {
+            CompletableFuture<CachedMaze> created = new CompletableFuture<>();
+            loading = mazes.putIfAbsent(key, created);
+            if (loading == null) {
+                loading = created;
+                Maze maze = new Maze();
+                maze.setBuildIndexOnLoad(true);
+                boolean loaded;
+                try {
+                    loaded = maze.load(key);
+                } catch (RuntimeException | Error e) {
+                    mazes.remove(key, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+                if (loaded) {
+                    created.complete(new CachedMaze(maze));
+                } else {
+                    mazes.remove(key, created);
+                    String error = maze.getLoadError();
+                    created.completeExceptionally(new IOException(error == null ? "Could not load " + fileName : error));
+                }
+            }
+        }
+        try {
+            return loading.get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Returns a one-line JSON summary of the requests handled so far.
+     */
+    public String statsJson() {
+        long p50;
+        long p99;
+        long max;
+        synchronized (latency) {
+            p50 = latency.getValueAtPercentile(50);
+            p99 = latency.getValueAtPercentile(99);
+            max = latency.getMax();
+        }
+        return "{\"requests\":" + requests.get()
+                + ",\"errors\":" + errors.get()
+                + ",\"mazes\":" + mazes.size()
+                + ",\"batches\":" + batches.get()
+                + ",\"batchedRoutes\":" + batchedRoutes.get()
+                + ",\"virtualThreads\":" + virtualThreads
+                + ",\"latencyNanos\":{\"p50\":" + p50 + ",\"p99\":" + p99 + ",\"max\":" + max + "}}";
+    }
+
+    /**
+     * Reads requests from in and writes their answers to out, one per line,
+     * until QUIT or the end of the input. Queries are handled concurrently,
+     * so that ROUTE and DISTANCE requests can be batched, but answers are
+     * written in the order the requests were read. Any other request is
+     * only handled once every earlier one has been answered.
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException {
+        ArrayDeque<Future<String>> waiting = new ArrayDeque<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            String request = line.trim();
+            if (request.equalsIgnoreCase("QUIT")) {
+                break;
+            }
+            if (request.isEmpty()) {
+                continue;
+            }
+            if (!isQuery(request)) {
+                while (!waiting.isEmpty()) {
+                    writeAnswer(out, waiting.poll());
+                }
+                out.write(handle(request));
+                out.write('\n');
+                out.flush();
+                continue;
+            }
+            waiting.add(executor.submit(() -> handle(request)));
+            // Answer as soon as no more requests are ready to be read, so a
+            // client that sends one request at a time is never kept waiting
+            while (!waiting.isEmpty()
+                    && (waiting.size() >= MAX_PIPELINED || waiting.peek().isDone() || !in.ready())) {
+                writeAnswer(out, waiting.poll());
+            }
+            out.flush();
+        }
+        while (!waiting.isEmpty()) {
+            writeAnswer(out, waiting.poll());
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns true if request only reads a maze, so it can be handled
+     * alongside other such requests.
+     */
+    private static boolean isQuery(String request) {
+        String command = request.split("\\s+", 2)[0].toUpperCase();
+        return command.equals("SOLVE") || command.equals("ROUTE") || command.equals("DISTANCE")
+                || command.equals("RENDER");
+    }
+
+    private static void writeAnswer(Writer out, Future<String> answer) throws IOException {
+        try {
+            out.write(answer.get());
+        } catch (ExecutionException e) {
+            out.write("ERROR " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            out.write("ERROR Interrupted");
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Accepts clients on the given port of the loopback address, serving
+     * each connection on its own thread, until the process is stopped.
+     */
+    public void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Listening on port " + server.getLocalPort()
+                    + (virtualThreads ? " (virtual threads)" : " (thread pool)"));
+            while (true) {
+                Socket socket = server.accept();
+                executor.execute(() -> serveConnection(socket));
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try (Socket client = socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            serve(in, out);
+        } catch (IOException e) {
+            // The client went away; nothing to answer
+        }
+    }
+
+    /**
+     * Stops the threads handling requests.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * CachedMaze is a loaded maze with the answers and pending routes that
+     * belong to it.
+     */
+    private class CachedMaze {
+        final Maze maze;
+
+        // SOLVE answers by algorithm; concurrent requests share one solve
+        private final ConcurrentHashMap<String, CompletableFuture<int[]>> solutions = new ConcurrentHashMap<>();
+
+        // Routes waiting for the next batch, and whether a batch is running;
+        // guarded by this
+        private List<PendingRoute> pending = new ArrayList<>();
+        private boolean batching;
+
+        CachedMaze(Maze maze) {
+            this.maze = maze;
+        }
+
+        boolean contains(RouteQuery query) {
+            return query.getStartRow() >= 0 && query.getStartRow() < maze.getNumRows()
+                    && query.getFinishRow() >= 0 && query.getFinishRow() < maze.getNumRows()
+                    && query.getStartColumn() >= 0 && query.getStartColumn() < maze.getNumColumns()
+                    && query.getFinishColumn() >= 0 && query.getFinishColumn() < maze.getNumColumns();
+        }
+
+        int[] solve(String algorithm) throws InterruptedException {
+            Solver solver = Solver.forName(algorithm);
+            if (solver == null) {
+                throw new IllegalArgumentException("Unknown solver " + algorithm
+                        + ". Please choose dfs, bfs, astar, bidirectional, parallel, compressed or incremental.");
+            }
+            CompletableFuture<int[]> created = new CompletableFuture<>();
+            CompletableFuture<int[]> solution = solutions.putIfAbsent(algorithm, created);
+            if (solution == null) {
+                solution = created;
+                try {
+                    created.complete(maze.getSolutionPath(solver));
+                } catch (RuntimeException e) {
+                    solutions.remove(algorithm, created);
+                    created.completeExceptionally(e);
+                }
+            }
+            return await(solution);
+        }
+
+        /**
+         * Queues a route for the next batch and waits for its answer. If no
+         * batch is running, the calling thread runs one.
+         * @return the route's squares, or if distance is true, a single
+         * element holding its length in steps
+         */
+        int[] route(RouteQuery query, boolean distance) throws InterruptedException {
+            PendingRoute route = new PendingRoute(query, distance);
+            boolean lead;
+            synchronized (this) {
+                pending.add(route);
+                lead = !batching;
+                batching = true;
+            }
+            if (lead) {
+                runBatch();
+            }
+            return await(route.answer);
+        }
+
+        /**
+         * Answers every pending route. Routes queued meanwhile are left to
+         * another thread, so the caller can return its own answer.
+         */
+        private void runBatch() {
+            List<PendingRoute> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            batches.incrementAndGet();
+            batchedRoutes.addAndGet(batch.size());
+
+            List<RouteQuery> paths = new ArrayList<>();
+            List<RouteQuery> distances = new ArrayList<>();
+            for (PendingRoute route : batch) {
+                (route.distance ? distances : paths).add(route.query);
+            }
+            try {
+                List<int[]> pathAnswers = paths.isEmpty() ? new ArrayList<>() : maze.solveBatch(paths);
+                int[] distanceAnswers = distances.isEmpty() ? new int[0] : maze.getDistances(distances);
+                int p = 0;
+                int d = 0;
+                for (PendingRoute route : batch) {
+                    route.answer.complete(route.distance ? new int[] {distanceAnswers[d++]} : pathAnswers.get(p++));
+                }
+            } catch (RuntimeException e) {
+                for (PendingRoute route : batch) {
+                    route.answer.completeExceptionally(e);
+                }
+            }
+
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    batching = false;
+                    return;
+                }
+            }
+            executor.execute(this::runBatch);
+        }
+    }
+
+    /**
+     * PendingRoute is a ROUTE or DISTANCE request waiting for its batch.
+     */
+    private static class PendingRoute {
+        final RouteQuery query;
+        final boolean distance;
+        final CompletableFuture<int[]> answer = new CompletableFuture<>();
+
+        PendingRoute(RouteQuery query, boolean distance) {
+            this.query = query;
+            this.distance = distance;
+        }
+    }
+
+    private static int[] await(CompletableFuture<int[]> answer) throws InterruptedException {
+        try {
+            return answer.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Serves requests from standard input, or from clients on a local port
+     * if --port=<n> is given (0 picks a free port). Maze files named on the
+     * command line are loaded before any request is read.
+     */
+    public static void main(String[] args) {
+        int port = -1;
+        List<String> preload = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                try {
+                    port = Integer.parseInt(arg.substring("--port=".length()));
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 0 || port > 65535) {
+                    System.out.println("Usage: java MazeServer [--port=<n>] [<maze file> ...]");
+                    return;
+                }
+            } else if (arg.startsWith("--")) {
+                System.out.println("Usage: java MazeServer [--port=<n>] [<maze file> ...]");
+                return;
+            } else {
+                preload.add(arg);
+            }
+        }
+
+        MazeServer server = new MazeServer();
+        for (String file : preload) {
+            String answer = server.handle("LOAD " + file);
+            if (answer.startsWith("ERROR")) {
+                System.err.println(answer.substring("ERROR ".length()));
+            }
+        }
+        try {
+            if (port >= 0) {
+                server.listen(port);
+            } else {
+                server.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                        new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            System.err.println("Server stopped: " + e.getMessage());
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -16,6 +16,10 @@ public class MazeSquare {
     //Used when solving a maze
     private boolean visited;
 
+    //Packed grid this square is a view of, or null for a standalone square
+    private MazeGrid grid;
+    private int index;
+
     /**
      * Constructs a new maze square with walls as configured by
      * descriptor (7 = top and right, | is just right, _ is just
@@ -45,10 +49,25 @@ public class MazeSquare {
         }
     }
 
+    /**
+     * Constructs a lightweight view of the square at the given row and
+     * column of a packed grid. Walls and the visited flag are read from
+     * and written to the grid itself.
+     */
+    MazeSquare(MazeGrid grid, int row, int col) {
+        this.grid = grid;
+        this.row = row;
+        this.col = col;
+        this.index = grid.index(row, col);
+    }
+
     /**
      * Returns true if this square has been visited.
      */
     public boolean getVisited() {
+        if (grid != null) {
+            return grid.isVisited(index);
+        }
         return visited;
     }
 
@@ -56,20 +75,31 @@ public class MazeSquare {
      * Mark this square as visited.
      */
     public void markVisited() {
-        visited = true;
+        if (grid != null) {
+            grid.markVisited(index);
+        } else {
+            visited = true;
+        }
     }
 
     /**
      * Mark this square as unvisited.
      */
     public void unmarkVisited() {
-        visited = false;
+        if (grid != null) {
+            grid.unmarkVisited(index);
+        } else {
+            visited = false;
+        }
     }
 
     /**
      * Returns true if this square has a top wall.
      */
     public boolean hasTopWall() {
+        if (grid != null) {
+            return grid.hasTopWall(index);
+        }
         return hasTopWall;
     }
 
@@ -77,6 +107,9 @@ public class MazeSquare {
      * Returns true if this square has a right wall.
      */
     public boolean hasRightWall() {
+        if (grid != null) {
+            return grid.hasRightWall(index);
+        }
         return hasRightWall;
     }
 
@@ -102,6 +135,28 @@ public class MazeSquare {
         return c=='*' || c=='_' || c=='|' || c=='7';
     }
 
+    /**
+     * Two views are equal if they refer to the same square of the same grid.
+     * Standalone squares are only equal to themselves.
+     */
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MazeSquare) || grid == null) {
+            return false;
+        }
+        MazeSquare square = (MazeSquare) other;
+        return grid == square.grid && index == square.index;
+    }
+
+    public int hashCode() {
+        if (grid == null) {
+            return System.identityHashCode(this);
+        }
+        return index;
+    }
+
     public String toString() {
       return "row: " + row + ",col: " + col;
     }
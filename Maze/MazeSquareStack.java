@@ -0,0 +1,64 @@
+/**
+* MazeSquareStack presents an IntStack of grid indices as a Stack of
+* MazeSquare objects. Squares are created as views of the grid when they are
+* popped or peeked, so a solution is stored as plain ints however long it is.
+*/
+public class MazeSquareStack implements Stack<MazeSquare> {
+    private final MazeGrid grid;
+    private final IntStack indices;
+
+    /**
+     * Creates a stack of the squares of grid whose indices are in indices,
+     * bottom first.
+     */
+    public MazeSquareStack(MazeGrid grid, int[] indices) {
+        this.grid = grid;
+        this.indices = new IntStack(indices.length);
+        for (int index : indices) {
+            this.indices.push(index);
+        }
+    }
+
+    /**
+     * Adds a square of this stack's grid to the top of the stack. Only its
+     * row and column are kept.
+     */
+    public void push(MazeSquare item) {
+        indices.push(grid.index(item.getRow(), item.getColumn()));
+    }
+
+    public MazeSquare pop() {
+        return square(indices.pop());
+    }
+
+    public MazeSquare peek() {
+        return square(indices.peek());
+    }
+
+    public boolean isEmpty() {
+        return indices.isEmpty();
+    }
+
+    public void clear() {
+        indices.clear();
+    }
+
+    /**
+     * Returns the number of squares on the stack.
+     */
+    public int size() {
+        return indices.size();
+    }
+
+    /**
+     * Returns the grid indices of the squares from the bottom of the stack
+     * to the top.
+     */
+    public int[] toArray() {
+        return indices.toArray();
+    }
+
+    private MazeSquare square(int index) {
+        return new MazeSquare(grid, grid.row(index), grid.column(index));
+    }
+}
@@ -0,0 +1,223 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+* ParallelSolver is a level-synchronous breadth-first search: each level's
+* frontier is split into chunks that are expanded concurrently on a
+* ForkJoinPool. Squares are claimed with compare-and-set on a shared visited
+* bitset, so each square joins the next frontier exactly once and its parent
+* is written only by the thread that claimed it. Like BreadthFirstSolver, the
+* path it returns is a shortest one.
+*
+* A frontier is split into about four chunks per thread, but never into
+* chunks of fewer than MIN_CHUNK_SIZE squares. Frontiers too small for two
+* chunks, and every frontier when the pool has only one thread, are expanded
+* on the calling thread, since forking costs more than it saves there. The frontier and the next level live in two buffers
+* reused from level to level; each chunk writes the squares it claims into
+* its own slice of the next level, which is compacted as the chunks join.
+*
+* A solver made with its own pool must be closed to stop the pool's threads.
+*/
+public class ParallelSolver implements Solver, AutoCloseable {
+    // Fewest frontier squares a task expands without splitting further
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    // Chunks per thread a large frontier is split into, so that threads
+    // that finish early can steal work from the others
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Longest array the JVM can reliably allocate
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private SolveListener listener;
+
+    /**
+     * Creates a solver that runs on the common ForkJoinPool.
+     */
+    public ParallelSolver() {
+        pool = ForkJoinPool.commonPool();
+        ownsPool = false;
+    }
+
+    /**
+     * Creates a solver with its own pool of the given number of threads.
+     * Close it once it is no longer needed.
+     */
+    public ParallelSolver(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+        ownsPool = true;
+    }
+
+    /**
+     * Returns the number of threads this solver expands frontiers with.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void setListener(SolveListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Shuts down the solver's own pool, if it has one. The solver must not
+     * be used afterwards.
+     */
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    public int[] solve(MazeGrid grid, int start, int finish) {
+        try (SolveScratch scratch = SolveScratch.begin(grid.size())) {
+            return search(grid, start, finish, scratch.getParents());
+        }
+    }
+
+    private int[] search(MazeGrid grid, int start, int finish, int[] parent) {
+        AtomicLongArray visited = new AtomicLongArray((grid.size() + 63) / 64);
+        claim(visited, start);
+        parent[start] = start;
+        int[] frontier = new int[64];
+        int[] next = new int[64];
+        frontier[0] = start;
+        int frontierSize = 1;
+        // Counted here between levels, so the tasks never share a counter
+        long claimed = 1;
+        long expanded = 0;
+        int maxFrontier = 1;
+        while (frontierSize > 0 && !isClaimed(visited, finish)) {
+            int chunks = CHUNKS_PER_THREAD * pool.getParallelism();
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, (int) ((frontierSize + (long) chunks - 1) / chunks));
+            // Every frontier square but the start, which is alone in its
+            // frontier, came from a claimed neighbor and so claims at most
+            // three more. Split frontiers need a slice of three slots per
+            // square; one expanded whole packs its claims, of which there
+            // are fewer than squares in the grid.
+            long slots = 3L * frontierSize + 1;
+            boolean split = pool.getParallelism() > 1 && frontierSize >= 2 * chunkSize && slots <= MAX_ARRAY_SIZE;
+            int needed = (int) (split ? slots : Math.min(slots, grid.size()));
+            if (next.length < needed) {
+                next = new int[(int) Math.min(MAX_ARRAY_SIZE, Math.max(2L * next.length, needed))];
+            }
+            ExpandTask task = new ExpandTask(grid, visited, parent, frontier, next, 0, frontierSize,
+                    split ? chunkSize : frontierSize, split);
+            expanded += frontierSize;
+            int nextSize = split ? pool.invoke(task) : task.compute();
+
+            int[] expandedFrontier = frontier;
+            frontier = next;
+            next = expandedFrontier;
+            frontierSize = nextSize;
+            claimed += frontierSize;
+            maxFrontier = Math.max(maxFrontier, frontierSize);
+        }
+        if (listener != null) {
+            listener.solveFinished("parallel", claimed, claimed, expanded, maxFrontier);
+        }
+        if (!isClaimed(visited, finish)) {
+            return new int[0];
+        }
+        return Solver.tracePath(parent, start, finish);
+    }
+
+    /**
+     * Sets the visited bit of the given square.
+     * @return true if this call set it, false if it was already set
+     */
+    private static boolean claim(AtomicLongArray visited, int square) {
+        int word = square >>> 6;
+        long mask = 1L << square;
+        long old = visited.get(word);
+        while ((old & mask) == 0) {
+            if (visited.compareAndSet(word, old, old | mask)) {
+                return true;
+            }
+            old = visited.get(word);
+        }
+        return false;
+    }
+
+    /**
+     * Sets the visited bit of the given square like claim(), for use while
+     * no other thread is claiming squares.
+     */
+    private static boolean claimAlone(AtomicLongArray visited, int square) {
+        int word = square >>> 6;
+        long mask = 1L << square;
+        long old = visited.get(word);
+        if ((old & mask) != 0) {
+            return false;
+        }
+        // Later levels read it after pool.invoke() or on this thread
+        visited.lazySet(word, old | mask);
+        return true;
+    }
+
+    private static boolean isClaimed(AtomicLongArray visited, int square) {
+        return (visited.get(square >>> 6) & (1L << square)) != 0;
+    }
+
+    /**
+     * Expands frontier[from..to), writing the squares claimed for the next
+     * level to next, starting at next[3 * from], and returns their number.
+     * Ranges of twice chunkSize squares or more are split in two.
+     */
+    private static class ExpandTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final MazeGrid grid;
+        private final AtomicLongArray visited;
+        private final int[] parent;
+        private final int[] frontier;
+        private final int[] next;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        // Whether other tasks claim squares at the same time
+        private final boolean shared;
+
+        ExpandTask(MazeGrid grid, AtomicLongArray visited, int[] parent, int[] frontier, int[] next,
+                int from, int to, int chunkSize, boolean shared) {
+            this.grid = grid;
+            this.visited = visited;
+            this.parent = parent;
+            this.frontier = frontier;
+            this.next = next;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.shared = shared;
+        }
+
+        protected Integer compute() {
+            if (to - from < 2 * chunkSize) {
+                int size = 3 * from;
+                for (int i = from; i < to; i++) {
+                    int cur = frontier[i];
+                    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+                        int neighbor = grid.neighbor(cur, direction);
+                        if (neighbor >= 0 && (shared ? claim(visited, neighbor) : claimAlone(visited, neighbor))) {
+                            parent[neighbor] = cur;
+                            next[size++] = neighbor;
+                        }
+                    }
+                }
+                return size - 3 * from;
+            }
+            int middle = (from + to) >>> 1;
+            ExpandTask left = new ExpandTask(grid, visited, parent, frontier, next, from, middle, chunkSize, shared);
+            ExpandTask right = new ExpandTask(grid, visited, parent, frontier, next, middle, to, chunkSize, shared);
+            left.fork();
+            int rightSize = right.compute();
+            int leftSize = left.join();
+            // Close the gap between the left half's squares and the right's
+            System.arraycopy(next, 3 * middle, next, 3 * from + leftSize, rightSize);
+            return leftSize + rightSize;
+        }
+    }
+}
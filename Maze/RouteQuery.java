@@ -0,0 +1,41 @@
+/**
+* RouteQuery names a start square and a finish square of a maze, for asking
+* Maze for many routes at once.
+*/
+public class RouteQuery {
+    private final int startRow;
+    private final int startColumn;
+    private final int finishRow;
+    private final int finishColumn;
+
+    /**
+     * Creates a query for a route from (startRow, startColumn) to
+     * (finishRow, finishColumn).
+     */
+    public RouteQuery(int startRow, int startColumn, int finishRow, int finishColumn) {
+        this.startRow = startRow;
+        this.startColumn = startColumn;
+        this.finishRow = finishRow;
+        this.finishColumn = finishColumn;
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    public int getFinishRow() {
+        return finishRow;
+    }
+
+    public int getFinishColumn() {
+        return finishColumn;
+    }
+
+    public String toString() {
+        return "(" + startRow + ", " + startColumn + ") -> (" + finishRow + ", " + finishColumn + ")";
+    }
+}
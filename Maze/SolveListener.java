@@ -0,0 +1,37 @@
+/**
+* A SolveListener is told what a Maze and its solvers are doing: how long
+* each phase of a run took and what each solve cost. Every method does
+* nothing by default, so a listener only overrides what it wants to see.
+* Solvers count in local variables and report once per solve, so listening
+* adds nothing to their inner loops.
+*/
+public interface SolveListener {
+
+    /**
+     * Called when a phase of a run (such as load, solve or print) finishes.
+     */
+    default void phaseFinished(String phase, long nanos) {
+    }
+
+    /**
+     * Called at the end of each solve, by the solver or, when Maze's
+     * connectivity index shows there is no path, by Maze without running one.
+     * @param solver the name of the solver, as accepted by Solver.forName,
+     * or "index" for a solve the connectivity index answered
+     * @param squaresVisited the number of squares the solver reached (graph
+     * nodes for CompressedSolver, squares settled for IncrementalSolver)
+     * @param pushes the number of squares added to the stack, queue or heap
+     * @param pops the number of squares removed from it; for a depth-first
+     * search these are the backtracks
+     * @param maxDepth the largest the stack, queue or heap grew
+     */
+    default void solveFinished(String solver, long squaresVisited, long pushes, long pops, int maxDepth) {
+    }
+
+    /**
+     * Called with the tile cache counters of a TiledMazeGrid, which are
+     * running totals since the tile file was opened.
+     */
+    default void tilesRead(long hits, long misses, long evictions) {
+    }
+}
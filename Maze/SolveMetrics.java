@@ -0,0 +1,140 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+* SolveMetrics is the default SolveListener. It adds up what it is told in
+* primitive counters, keeps a LatencyHistogram of solve times, and can
+* summarize everything as JSON for Maze --stats. Its methods are
+* synchronized, so one SolveMetrics can listen to solves on many threads.
+*/
+public class SolveMetrics implements SolveListener {
+    // Count and total nanoseconds of each phase, in the order first seen
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private final LatencyHistogram solveLatency = new LatencyHistogram();
+
+    private String lastSolver;
+    private long solves;
+    private long squaresVisited;
+    private long pushes;
+    private long pops;
+    private int maxDepth;
+
+    private boolean tiled;
+    private long tileHits;
+    private long tileMisses;
+    private long tileEvictions;
+
+    public synchronized void phaseFinished(String phase, long nanos) {
+        long[] totals = phases.get(phase);
+        if (totals == null) {
+            totals = new long[2];
+            phases.put(phase, totals);
+        }
+        totals[0]++;
+        totals[1] += nanos;
+        if (phase.equals("solve")) {
+            solveLatency.record(nanos);
+        }
+    }
+
+    public synchronized void solveFinished(String solver, long squaresVisited, long pushes, long pops, int maxDepth) {
+        lastSolver = solver;
+        solves++;
+        this.squaresVisited += squaresVisited;
+        this.pushes += pushes;
+        this.pops += pops;
+        this.maxDepth = Math.max(this.maxDepth, maxDepth);
+    }
+
+    public synchronized void tilesRead(long hits, long misses, long evictions) {
+        tiled = true;
+        tileHits = hits;
+        tileMisses = misses;
+        tileEvictions = evictions;
+    }
+
+    /**
+     * Returns the number of solves reported by solvers.
+     */
+    public synchronized long getSolves() {
+        return solves;
+    }
+
+    /**
+     * Returns the total number of squares reached over all solves.
+     */
+    public synchronized long getSquaresVisited() {
+        return squaresVisited;
+    }
+
+    /**
+     * Returns the total number of pushes over all solves.
+     */
+    public synchronized long getPushes() {
+        return pushes;
+    }
+
+    /**
+     * Returns the total number of pops over all solves.
+     */
+    public synchronized long getPops() {
+        return pops;
+    }
+
+    /**
+     * Returns the deepest any solve's stack, queue or heap grew.
+     */
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the total time spent in the given phase, in nanoseconds.
+     */
+    public synchronized long getPhaseNanos(String phase) {
+        long[] totals = phases.get(phase);
+        return totals == null ? 0 : totals[1];
+    }
+
+    /**
+     * Returns the histogram of solve phase times in nanoseconds.
+     */
+    public synchronized LatencyHistogram getSolveLatency() {
+        return solveLatency;
+    }
+
+    /**
+     * Returns everything recorded as a single-line JSON object.
+     */
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":{");
+        String separator = "";
+        for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+            json.append(separator).append('"').append(phase.getKey()).append("\":{\"count\":")
+                    .append(phase.getValue()[0]).append(",\"nanos\":").append(phase.getValue()[1]).append('}');
+            separator = ",";
+        }
+        json.append("},\"solver\":");
+        if (lastSolver == null) {
+            json.append("null");
+        } else {
+            json.append('"').append(lastSolver).append('"');
+        }
+        json.append(",\"solves\":").append(solves)
+                .append(",\"squaresVisited\":").append(squaresVisited)
+                .append(",\"pushes\":").append(pushes)
+                .append(",\"pops\":").append(pops)
+                .append(",\"maxDepth\":").append(maxDepth)
+                .append(",\"solveNanos\":{\"count\":").append(solveLatency.getTotalCount())
+                .append(",\"min\":").append(solveLatency.getMin())
+                .append(",\"p50\":").append(solveLatency.getValueAtPercentile(50))
+                .append(",\"p99\":").append(solveLatency.getValueAtPercentile(99))
+                .append(",\"max\":").append(solveLatency.getMax()).append('}');
+        if (tiled) {
+            json.append(",\"tiles\":{\"hits\":").append(tileHits)
+                    .append(",\"misses\":").append(tileMisses)
+                    .append(",\"evictions\":").append(tileEvictions).append('}');
+        }
+        return json.append('}').toString();
+    }
+}
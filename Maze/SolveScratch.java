@@ -0,0 +1,221 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+* SolveScratch holds the working arrays a solve needs (reached marks,
+* parent links, distances, a queue, a heap, a stack), kept apart from the
+* MazeGrid so that one loaded grid can be solved by many threads at once. A
+* solve borrows a SolveScratch with begin() and gives it back with close(),
+* so concurrent solves never share buffers and later solves reuse them
+* instead of reallocating. Idle scratch is pooled, at most one per
+* processor however many threads there are, so a server that runs each
+* request on a new (possibly virtual) thread neither allocates fresh arrays
+* per request nor keeps a set alive for every idle thread. Scratch sized for
+* more than MAX_POOLED_SQUARES squares is never pooled: its arrays take
+* about 33 bytes per square, which would stay pinned long after the maze
+* they were sized for is gone, and solves of mazes that big take far longer
+* than allocating them.
+*
+* Squares are marked reached by stamping them with the number of the current
+* solve, so begin() never has to clear the marks left by the previous solve.
+*/
+public class SolveScratch implements AutoCloseable {
+    // Most idle scratch kept for reuse; more is left to the garbage collector
+    private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors();
+
+    // Largest grid, in squares, whose scratch is pooled after use
+    public static final int MAX_POOLED_SQUARES = 1 << 20;
+
+    // Idle scratch, most recently returned last; guarded by itself
+    private static final ArrayDeque<SolveScratch> POOL = new ArrayDeque<>();
+
+    // stamp[square] == epoch means square was reached during the current
+    // solve; mark is a second set of stamps for solvers that need one
+    private int[] stamp = new int[0];
+    private int[] mark = new int[0];
+    private int epoch;
+
+    private int[] parent = new int[0];
+    private int[] distance = new int[0];
+    private int[] queue = new int[0];
+    private byte[] direction = new byte[0];
+    private final IntStack stack = new IntStack();
+    private final LongHeap heap = new LongHeap();
+
+    // A second search tree, for solvers that search from both ends
+    private int[] secondParent = new int[0];
+    private int[] secondDistance = new int[0];
+    private int[] secondQueue = new int[0];
+
+    private int size;
+    private boolean borrowed;
+
+    private SolveScratch() {
+    }
+
+    /**
+     * Borrows a scratch, ready for a solve over a grid of the given number
+     * of squares: no square is stamped or marked with the new epoch, and the
+     * stack and heap are empty. Close it when the solve is done with it.
+     */
+    public static SolveScratch begin(int numSquares) {
+        SolveScratch scratch;
+        synchronized (POOL) {
+            scratch = POOL.pollLast();
+        }
+        if (scratch == null) {
+            scratch = new SolveScratch();
+        }
+        scratch.borrowed = true;
+        scratch.size = numSquares;
+        if (scratch.stamp.length < numSquares) {
+            scratch.stamp = new int[numSquares];
+            scratch.mark = new int[0];
+            scratch.epoch = 0;
+        }
+        scratch.epoch++;
+        if (scratch.epoch == 0) {
+            // The counter wrapped around, so old stamps could look current
+            Arrays.fill(scratch.stamp, 0);
+            Arrays.fill(scratch.mark, 0);
+            scratch.epoch = 1;
+        }
+        scratch.stack.clear();
+        scratch.heap.clear();
+        return scratch;
+    }
+
+    /**
+     * Gives the scratch back for a later solve, or leaves it to the garbage
+     * collector if it has grown past MAX_POOLED_SQUARES. None of its arrays
+     * may be used after this.
+     */
+    public void close() {
+        if (!borrowed) {
+            return;
+        }
+        borrowed = false;
+        if (stamp.length > MAX_POOLED_SQUARES) {
+            return;
+        }
+        synchronized (POOL) {
+            if (POOL.size() < MAX_POOLED) {
+                POOL.addLast(this);
+            }
+        }
+    }
+
+    /**
+     * Returns the stamp of the current solve.
+     */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the stamps; square was reached in this solve if its stamp
+     * equals getEpoch().
+     */
+    public int[] getStamps() {
+        return stamp;
+    }
+
+    /**
+     * Returns a second set of stamps, compared with getEpoch() like
+     * getStamps().
+     */
+    public int[] getMarks() {
+        if (mark.length < size) {
+            mark = new int[stamp.length];
+        }
+        return mark;
+    }
+
+    /**
+     * Returns an array with room for a parent link per square. Its contents
+     * are left over from earlier solves.
+     */
+    public int[] getParents() {
+        if (parent.length < size) {
+            parent = new int[stamp.length];
+        }
+        return parent;
+    }
+
+    /**
+     * Returns an array with room for a distance per square. Its contents
+     * are left over from earlier solves.
+     */
+    public int[] getDistances() {
+        if (distance.length < size) {
+            distance = new int[stamp.length];
+        }
+        return distance;
+    }
+
+    /**
+     * Returns an array with room to queue every square once. Its contents
+     * are left over from earlier solves.
+     */
+    public int[] getQueue() {
+        if (queue.length < size) {
+            queue = new int[stamp.length];
+        }
+        return queue;
+    }
+
+    /**
+     * Returns an array with room for a direction per square. Its contents
+     * are left over from earlier solves.
+     */
+    public byte[] getDirections() {
+        if (direction.length < size) {
+            direction = new byte[stamp.length];
+        }
+        return direction;
+    }
+
+    /**
+     * Returns an empty stack.
+     */
+    public IntStack getStack() {
+        return stack;
+    }
+
+    /**
+     * Returns an empty heap.
+     */
+    public LongHeap getHeap() {
+        return heap;
+    }
+
+    /**
+     * Returns a second array like getParents(), for a second search tree.
+     */
+    public int[] getSecondParents() {
+        if (secondParent.length < size) {
+            secondParent = new int[stamp.length];
+        }
+        return secondParent;
+    }
+
+    /**
+     * Returns a second array like getDistances(), for a second search tree.
+     */
+    public int[] getSecondDistances() {
+        if (secondDistance.length < size) {
+            secondDistance = new int[stamp.length];
+        }
+        return secondDistance;
+    }
+
+    /**
+     * Returns a second array like getQueue(), for a second search tree.
+     */
+    public int[] getSecondQueue() {
+        if (secondQueue.length < size) {
+            secondQueue = new int[stamp.length];
+        }
+        return secondQueue;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+* A Solver finds a path between two squares of a MazeGrid. Squares are
+* identified by their grid index rather than by MazeSquare objects, so
+* solvers can run over very large grids without allocating per square.
+*/
+public interface Solver {
+
+    /**
+     * Finds a path from start to finish.
+     * @return the indices of the squares on the path, start first and finish
+     * last, or an empty array if finish cannot be reached from start
+     */
+    int[] solve(MazeGrid grid, int start, int finish);
+
+    /**
+     * Sets the listener this solver reports each solve to, or null for none.
+     * Solvers that do not count their work ignore it.
+     */
+    default void setListener(SolveListener listener) {
+    }
+
+    /**
+     * Returns the solver registered under the given --solve name
+     * (dfs, bfs, astar, bidirectional, parallel, compressed or
+     * incremental), or null if there is none.
+     */
+    static Solver forName(String name) {
+        switch (name) {
+            case "dfs": return new DepthFirstSolver();
+            case "bfs": return new BreadthFirstSolver();
+            case "astar": return new AStarSolver();
+            case "bidirectional": return new BidirectionalSolver();
+            case "parallel": return new ParallelSolver();
+            case "compressed": return new CompressedSolver();
+            case "incremental": return new IncrementalSolver();
+            default: return null;
+        }
+    }
+
+    /**
+     * Follows parent links back from finish to start and returns the squares
+     * visited along the way in start-to-finish order.
+     * @param parent the square each square was reached from; the parent of
+     * start is start itself
+     */
+    static int[] tracePath(int[] parent, int start, int finish) {
+        int length = 1;
+        for (int cur = finish; cur != start; cur = parent[cur]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int cur = finish;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = cur;
+            cur = parent[cur];
+        }
+        return path;
+    }
+}
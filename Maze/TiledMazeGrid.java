@@ -0,0 +1,422 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+* TiledMazeGrid is a MazeGrid whose walls stay on disk. The grid is cut into
+* square tiles stored one after another in a tile file; a tile is
+* memory-mapped the first time one of its squares is needed and kept in a
+* least-recently-used cache of hot tiles, so only the part of the maze a
+* solver is working on has to be in memory. Solvers, renderers and
+* Maze.getMazeSquare use it like any other MazeGrid.
+*
+* The tile file starts with a 64 byte header: the magic bytes "MAZT", a
+* format version, the number of columns and rows, the start column and row,
+* the finish column and row and the tile size (a power of two from 4 to
+* MAX_TILE_SIZE). Tiles follow in row-major order, each tileSize * tileSize
+* / 4 bytes holding its squares in row-major order, two wall bits per square
+* and four squares per byte. Tiles on the right and bottom edges are padded to full size.
+*
+* Reading squares is safe from several threads at once: the cache is
+* locked only when a thread moves to a different tile. Hit counts are
+* approximate while threads share the grid. Writing squares is not safe
+* while other threads use the grid.
+*/
+public class TiledMazeGrid extends MazeGrid implements AutoCloseable {
+    // "MAZT"
+    private static final int MAGIC = 0x4D415A54;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    // Tile side length and cache size when the caller does not say
+    public static final int DEFAULT_TILE_SIZE = 256;
+    public static final int DEFAULT_CACHE_TILES = 1024;
+
+    // Largest tile side length, whose tiles take 2^28 bytes each
+    public static final int MAX_TILE_SIZE = 1 << 15;
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mapMode;
+    private final int tileShift;
+    private final int tileMask;
+    private final int tileBytes;
+    private final int tileColumns;
+
+    private final int startColumn;
+    private final int startRow;
+    private final int finishColumn;
+    private final int finishRow;
+
+    // Mapped tiles by tile number, least recently used first
+    private final LinkedHashMap<Integer, MappedByteBuffer> cache;
+
+    // The tile used last, checked before the cache since neighboring
+    // squares are usually in the same tile. Its fields are final, so a
+    // thread reading it without the lock always sees a matching pair
+    private LastTile last = new LastTile(-1, null);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private TiledMazeGrid(FileChannel channel, boolean writable, ByteBuffer header, int cacheTiles) {
+        super(header.getInt(12), header.getInt(8), false);
+        this.channel = channel;
+        mapMode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        startColumn = header.getInt(16);
+        startRow = header.getInt(20);
+        finishColumn = header.getInt(24);
+        finishRow = header.getInt(28);
+        int tileSize = header.getInt(32);
+        tileShift = Integer.numberOfTrailingZeros(tileSize);
+        tileMask = tileSize - 1;
+        tileBytes = tileSize * tileSize / 4;
+        tileColumns = (int) (((long) getNumColumns() + tileSize - 1) / tileSize);
+        cache = new LinkedHashMap<Integer, MappedByteBuffer>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+                if (size() > cacheTiles) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Opens a tile file, keeping at most cacheTiles tiles mapped at once.
+     * If writable is true, setWalls writes through to the file.
+     * @throws java.nio.file.NoSuchFileException if there is no such file
+     * @throws MazeFormatException if the file is not a tile file
+     */
+    public static TiledMazeGrid open(String fileName, int cacheTiles, boolean writable)
+            throws IOException, MazeFormatException {
+        if (cacheTiles < 1) {
+            throw new IllegalArgumentException("The tile cache needs room for at least one tile");
+        }
+        FileChannel channel = writable
+                ? FileChannel.open(Paths.get(fileName), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new MazeFormatException("Not a maze tile file.");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new MazeFormatException("Unsupported maze tile file version.");
+            }
+            if (header.getInt(8) < 0 || header.getInt(12) < 0) {
+                throw new MazeFormatException("Maze tile file header is corrupt.");
+            }
+            int tileSize = header.getInt(32);
+            if (!isTileSize(tileSize)) {
+                throw new MazeFormatException("Maze tile file has an unsupported tile size: " + tileSize);
+            }
+            return new TiledMazeGrid(channel, writable, header, cacheTiles);
+        } catch (IOException | MazeFormatException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if tileSize is a power of two from 4 to MAX_TILE_SIZE.
+     */
+    private static boolean isTileSize(int tileSize) {
+        return tileSize >= 4 && tileSize <= MAX_TILE_SIZE && Integer.bitCount(tileSize) == 1;
+    }
+
+    /**
+     * Returns true if the named file starts with the tile file magic bytes.
+     */
+    public static boolean isTileFile(String fileName) throws IOException {
+        try (FileChannel file = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && file.read(magic) >= 0) {
+                // keep reading until the magic is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getFinishColumn() {
+        return finishColumn;
+    }
+
+    public int getFinishRow() {
+        return finishRow;
+    }
+
+    public int getWalls(int index) {
+        int row = index / getNumColumns();
+        int col = index - row * getNumColumns();
+        int offset = ((row & tileMask) << tileShift) | (col & tileMask);
+        ByteBuffer tile = tile((row >>> tileShift) * tileColumns + (col >>> tileShift));
+        return (tile.get(offset >>> 2) >>> ((offset & 3) << 1)) & 3;
+    }
+
+    /**
+     * Changes the walls of a square in the tile file.
+     * @throws UnsupportedOperationException if the grid was not opened writable
+     */
+    public void setWalls(int index, int wallBits) {
+        if (mapMode != FileChannel.MapMode.READ_WRITE) {
+            throw new UnsupportedOperationException("Tile file was opened read-only");
+        }
+        int row = index / getNumColumns();
+        int col = index - row * getNumColumns();
+        int offset = ((row & tileMask) << tileShift) | (col & tileMask);
+        ByteBuffer tile = tile((row >>> tileShift) * tileColumns + (col >>> tileShift));
+        int shift = (offset & 3) << 1;
+        int packed = tile.get(offset >>> 2);
+        tile.put(offset >>> 2, (byte) ((packed & ~(3 << shift)) | ((wallBits & 3) << shift)));
+    }
+
+    /**
+     * Returns the mapped bytes of the given tile, mapping it on a miss.
+     */
+    private MappedByteBuffer tile(int tile) {
+        LastTile recent = last;
+        if (tile == recent.tile) {
+            hits++;
+            return recent.buffer;
+        }
+        MappedByteBuffer buffer;
+        synchronized (cache) {
+            buffer = cache.get(tile);
+            if (buffer == null) {
+                misses++;
+                try {
+                    buffer = channel.map(mapMode, HEADER_SIZE + (long) tile * tileBytes, tileBytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not map maze tile " + tile, e);
+                }
+                cache.put(tile, buffer);
+            } else {
+                hits++;
+            }
+        }
+        // A tile evicted from the cache stays mapped while this refers to it
+        last = new LastTile(tile, buffer);
+        return buffer;
+    }
+
+    /**
+     * LastTile pairs a tile number with its mapped bytes.
+     */
+    private static class LastTile {
+        final int tile;
+        final MappedByteBuffer buffer;
+
+        LastTile(int tile, MappedByteBuffer buffer) {
+            this.tile = tile;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Returns the number of square lookups served by an already mapped tile.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of tiles that had to be mapped.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of tiles dropped from the cache to make room.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public String toString() {
+        return "tiles: " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * Forces writes out to the file (if writable) and closes it. Mapped
+     * tiles are released by the JVM once they are no longer reachable.
+     */
+    public void close() throws IOException {
+        synchronized (cache) {
+            if (mapMode == FileChannel.MapMode.READ_WRITE) {
+                for (MappedByteBuffer buffer : cache.values()) {
+                    buffer.force();
+                }
+                LastTile recent = last;
+                if (recent.buffer != null) {
+                    recent.buffer.force();
+                }
+            }
+            cache.clear();
+            last = new LastTile(-1, null);
+        }
+        channel.close();
+    }
+
+    /**
+     * Writes a tile file for the maze in mazeFile (text or binary), one band
+     * of tileSize rows at a time, so the maze never has to fit in memory.
+     * The header goes in last, and if the maze cannot be read the partial
+     * tile file is deleted.
+     * @throws IllegalArgumentException if tileSize is not a power of two
+     * from 4 to MAX_TILE_SIZE, or a band of tiles would not fit in an array
+     */
+    public static void create(String mazeFile, String tileFile, int tileSize) throws IOException, MazeFormatException {
+        if (!isTileSize(tileSize)) {
+            throw new IllegalArgumentException("Tile size must be a power of two from 4 to " + MAX_TILE_SIZE
+                    + ", not " + tileSize);
+        }
+        boolean finished = false;
+        try {
+            try (FileChannel out = FileChannel.open(Paths.get(tileFile), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (BinaryMazeFile.isBinaryMazeFile(mazeFile)) {
+                    try (BinaryMazeFile in = new BinaryMazeFile(mazeFile)) {
+                        TileWriter writer = new TileWriter(out, in.getNumColumns(), in.getNumRows(),
+                                in.getStartColumn(), in.getStartRow(), in.getFinishColumn(), in.getFinishRow(),
+                                tileSize);
+                        for (int bandStart = 0; bandStart < in.getNumRows(); bandStart += tileSize) {
+                            int height = Math.min(tileSize, in.getNumRows() - bandStart);
+                            MazeGrid band = in.readRegion(bandStart, 0, height, in.getNumColumns());
+                            for (int row = 0; row < height; row++) {
+                                for (int col = 0; col < in.getNumColumns(); col++) {
+                                    writer.setWalls(bandStart + row, col, band.getWalls(band.index(row, col)));
+                                }
+                            }
+                        }
+                        writer.finish();
+                    }
+                } else {
+                    try (MappedMazeLoader in = new MappedMazeLoader(mazeFile)) {
+                        in.readHeader();
+                        TileWriter writer = new TileWriter(out, in.getNumColumns(), in.getNumRows(),
+                                in.getStartColumn(), in.getStartRow(), in.getFinishColumn(), in.getFinishRow(),
+                                tileSize);
+                        in.readSquares((row, col, walls) -> {
+                            try {
+                                writer.setWalls(row, col, walls);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                        writer.finish();
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+            finished = true;
+        } finally {
+            if (!finished) {
+                Files.deleteIfExists(Paths.get(tileFile));
+            }
+        }
+    }
+
+    /**
+     * TileWriter collects one band of tiles and writes it out once the last
+     * square of the band arrives. Squares must arrive in row order, and the
+     * header is only written by finish(), after the last one.
+     */
+    private static class TileWriter {
+        private final FileChannel out;
+        private final int numColumns;
+        private final int numRows;
+        private final int tileShift;
+        private final int tileMask;
+        private final int tileBytes;
+        private final byte[] band;
+        private final ByteBuffer header;
+
+        TileWriter(FileChannel out, int numColumns, int numRows, int startColumn, int startRow,
+                int finishColumn, int finishRow, int tileSize) {
+            if (numColumns < 0 || numRows < 0 || (long) numColumns * numRows > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Unsupported maze dimensions: " + numColumns + " x " + numRows);
+            }
+            this.out = out;
+            this.numColumns = numColumns;
+            this.numRows = numRows;
+            tileShift = Integer.numberOfTrailingZeros(tileSize);
+            tileMask = tileSize - 1;
+            tileBytes = tileSize * tileSize / 4;
+            long bandBytes = ((long) numColumns + tileSize - 1) / tileSize * tileBytes;
+            if (bandBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Tile size " + tileSize + " is too large for a maze "
+                        + numColumns + " columns wide");
+            }
+            band = new byte[(int) bandBytes];
+
+            header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numColumns).putInt(numRows)
+                    .putInt(startColumn).putInt(startRow).putInt(finishColumn).putInt(finishRow)
+                    .putInt(tileSize);
+            header.clear();
+        }
+
+        void setWalls(int row, int col, int wallBits) throws IOException {
+            int offset = (col >>> tileShift) * tileBytes + ((((row & tileMask) << tileShift) | (col & tileMask)) >>> 2);
+            int shift = (col & 3) << 1;
+            band[offset] = (byte) ((band[offset] & ~(3 << shift)) | ((wallBits & 3) << shift));
+            if (col == numColumns - 1 && ((row & tileMask) == tileMask || row == numRows - 1)) {
+                long position = HEADER_SIZE + (long) (row >>> tileShift) * band.length;
+                ByteBuffer data = ByteBuffer.wrap(band);
+                while (data.hasRemaining()) {
+                    position += out.write(data, position);
+                }
+                java.util.Arrays.fill(band, (byte) 0);
+            }
+        }
+
+        /**
+         * Writes the header, which makes the file a tile file. Call this
+         * once every square has been set.
+         */
+        void finish() throws IOException {
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3 || (args.length == 3 && !args[2].startsWith("--tile="))) {
+            System.out.println("Usage: java TiledMazeGrid <maze file> <tile file> [--tile=<size>]");
+            return;
+        }
+        try {
+            int tileSize = args.length == 3 ? Integer.parseInt(args[2].substring("--tile=".length())) : DEFAULT_TILE_SIZE;
+            create(args[0], args[1], tileSize);
+        } catch (MazeFormatException e) {
+            System.err.println(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Could not create " + args[1] + ": " + e.getMessage());
+        }
+    }
+}
@@ -3,14 +3,44 @@
 * @author Thando Tsela
 */
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class RadixSort {
+    // Buckets for ' ' (or past the end of a word), 'a', 'b', ..., 'z'
+    private static final int NUM_BUCKETS = 27;
+
+    // Buckets with at most this many words are finished by insertion sort
+    // in msdRadixSort
+    private static final int INSERTION_CUTOFF = 16;
+
+    // Fewest words parallelRadixSort gives each thread, below which the
+    // threads cost more than they save
+    private static final int MIN_CHUNK_SIZE = 1 << 14;
+
+    // Buckets sortFile uses: past the end of a line, then one per byte value
+    private static final int NUM_BYTE_BUCKETS = 257;
+
+    // Largest counting array alphabetRadixSort uses: a 16-bit digit
+    private static final int MAX_DIGIT_BUCKETS = 1 << 16;
+
     private static int maxLength;
 
 
@@ -26,7 +56,7 @@ public class RadixSort {
         decideMaxLength(words);
         List<String> paddedWords = padWords(words);
         // Creating 27 buckets: ' ', 'a', 'b', ..., 'z'.
-        List<List<String>> buckets = createBuckets(27);
+        List<List<String>> buckets = createBuckets(NUM_BUCKETS);
         for (int i = maxLength - 1; i >= 0; i--) {
             clearBuckets(buckets);
             for (String word: paddedWords) {
@@ -41,6 +71,556 @@ public class RadixSort {
         return stripWords(paddedWords);
     }
 
+    /**
+    * Sorts the words with the same least significant digit radix sort as
+    * radixSort, but without padding, buckets or trimming: each pass
+    * reorders an array of word indices with a counting array, treating
+    * the positions past the end of a word as the blank bucket. No strings
+    * are created. Each pass reads every word's letter once, in word order,
+    * into an int array of digits, and then scatters the indices with two
+    * sweeps over int arrays. This function doesn't change the passed in
+    * word list; it returns a new list.
+    *
+    * @param words A list of words. Each word contains only lower case letters in a-z.
+    * @return A list with the same words as the input argument, in sorted order
+    */
+    public static List<String> countingRadixSort(List<String> words) {
+        String[] array = words.toArray(new String[0]);
+        int[] order = sortedOrder(array);
+        List<String> sorted = new ArrayList<>(array.length);
+        for (int index : order) {
+            sorted.add(array[index]);
+        }
+        return sorted;
+    }
+
+    /**
+    * Returns the indices of the words in sorted order. Equal words keep
+    * their original order.
+    * @param words an array of words containing only lower case letters in a-z
+    * @return a permutation of 0 to words.length - 1
+    */
+    public static int[] sortedOrder(String[] words) {
+        int longest = 0;
+        for (String word : words) {
+            longest = Math.max(longest, word.length());
+        }
+        int[] order = new int[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] next = new int[words.length];
+        // The bucket of each word in the current pass, by word index
+        int[] digits = new int[words.length];
+        // counts[b + 1] counts bucket b, so after the prefix sum counts[b]
+        // is where bucket b starts
+        int[] counts = new int[NUM_BUCKETS + 1];
+        for (int position = longest - 1; position >= 0; position--) {
+            Arrays.fill(counts, 0);
+            // Words are read once per pass, in their own order rather than
+            // the permuted one
+            for (int index = 0; index < words.length; index++) {
+                int digit = bucket(words[index], position);
+                digits[index] = digit;
+                counts[digit + 1]++;
+            }
+            for (int b = 0; b < NUM_BUCKETS; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for (int index : order) {
+                next[counts[digits[index]]++] = index;
+            }
+            int[] swap = order;
+            order = next;
+            next = swap;
+        }
+        return order;
+    }
+
+    /**
+    * Sorts any words, not just lower case ones, in the same order as
+    * Collections.sort. The words are scanned first for the characters they
+    * actually use, and each of those is given a dense rank (1, 2, ... in
+    * character order, with 0 for past the end of a word). A digit is then
+    * one or more characters read together as a number in base alphabet
+    * size + 1, up to 16 bits wide, and the number of characters per digit
+    * is picked to make the fewest, cheapest passes: fewer passes for
+    * longer digits, but a larger counting array to clear and sum in each.
+    * The passes reorder an index permutation like countingRadixSort.
+    * This function doesn't change the passed in word list; it returns a
+    * new list.
+    *
+    * @param words A list of words
+    * @return A list with the same words as the input argument, in sorted order
+    */
+    public static List<String> alphabetRadixSort(List<String> words) {
+        String[] array = words.toArray(new String[0]);
+        int longest = 0;
+        char highest = 0;
+        for (String word : array) {
+            longest = Math.max(longest, word.length());
+            for (int i = 0; i < word.length(); i++) {
+                highest = (char) Math.max(highest, word.charAt(i));
+            }
+        }
+        // ranks[c] is the rank of character c, or 0 if no word uses it
+        int[] ranks = new int[highest + 1];
+        for (String word : array) {
+            for (int i = 0; i < word.length(); i++) {
+                ranks[word.charAt(i)] = 1;
+            }
+        }
+        int radix = 1;
+        for (int c = 0; c < ranks.length; c++) {
+            if (ranks[c] != 0) {
+                ranks[c] = radix++;
+            }
+        }
+
+        // Try each digit length whose counting array fits in 16 bits
+        int charsPerDigit = 1;
+        long bestCost = Long.MAX_VALUE;
+        long numBuckets = radix;
+        for (int chars = 1; numBuckets <= MAX_DIGIT_BUCKETS; chars++) {
+            long passes = (longest + chars - 1) / chars;
+            long cost = passes * (array.length + numBuckets);
+            if (cost < bestCost) {
+                bestCost = cost;
+                charsPerDigit = chars;
+            }
+            if (chars >= longest) {
+                break;
+            }
+            numBuckets *= radix;
+        }
+
+        int[] order = alphabetSortedOrder(array, ranks, radix, charsPerDigit, longest);
+        List<String> sorted = new ArrayList<>(array.length);
+        for (int index : order) {
+            sorted.add(array[index]);
+        }
+        return sorted;
+    }
+
+    /**
+    * Returns the indices of the words in sorted order, with LSD passes over
+    * digits of charsPerDigit characters each, where character c of a word
+    * counts as ranks[c] and positions past its end as 0.
+    */
+    private static int[] alphabetSortedOrder(String[] words, int[] ranks, int radix, int charsPerDigit,
+            int longest) {
+        int numBuckets = 1;
+        for (int i = 0; i < charsPerDigit; i++) {
+            numBuckets *= radix;
+        }
+        int[] order = new int[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] next = new int[words.length];
+        int[] digits = new int[words.length];
+        int[] counts = new int[numBuckets + 1];
+        int numDigits = (longest + charsPerDigit - 1) / charsPerDigit;
+        for (int digit = numDigits - 1; digit >= 0; digit--) {
+            int first = digit * charsPerDigit;
+            Arrays.fill(counts, 0);
+            for (int index = 0; index < words.length; index++) {
+                String word = words[index];
+                int value = 0;
+                for (int position = first; position < first + charsPerDigit; position++) {
+                    value = value * radix + (position < word.length() ? ranks[word.charAt(position)] : 0);
+                }
+                digits[index] = value;
+                counts[value + 1]++;
+            }
+            for (int b = 0; b < numBuckets; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for (int index : order) {
+                next[counts[digits[index]]++] = index;
+            }
+            int[] swap = order;
+            order = next;
+            next = swap;
+        }
+        return order;
+    }
+
+    /**
+    * Sorts the words with countingRadixSort, using one thread per
+    * available processor. The result is the same as radixSort's.
+    *
+    * @param words A list of words. Each word contains only lower case letters in a-z.
+    * @return A list with the same words as the input argument, in sorted order
+    */
+    public static List<String> parallelRadixSort(List<String> words) {
+        return parallelRadixSort(words, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+    * Sorts the words with countingRadixSort, spreading each pass over up
+    * to parallelism threads. The result is the same as radixSort's.
+    *
+    * @param words A list of words. Each word contains only lower case letters in a-z.
+    * @param parallelism the largest number of threads to use
+    * @return A list with the same words as the input argument, in sorted order
+    * @throws IllegalArgumentException if parallelism is not positive
+    */
+    public static List<String> parallelRadixSort(List<String> words, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        String[] array = words.toArray(new String[0]);
+        int[] order = parallelSortedOrder(array, parallelism);
+        List<String> sorted = new ArrayList<>(array.length);
+        for (int index : order) {
+            sorted.add(array[index]);
+        }
+        return sorted;
+    }
+
+    /**
+    * Returns the same permutation as sortedOrder, computed by up to
+    * parallelism threads. The index array is cut into one chunk per
+    * thread. In each pass every thread reads the digit of each word in its
+    * own chunk once, saving it in digits and counting the buckets, the
+    * counts are combined so that each chunk's share of every bucket starts
+    * after the shares of the chunks before it, and every thread then
+    * scatters its chunk by the saved digits. This keeps each pass stable, so the
+    * result is exactly the sequential one.
+    */
+    private static int[] parallelSortedOrder(String[] words, int parallelism) {
+        int numChunks = Math.min(parallelism, words.length / MIN_CHUNK_SIZE);
+        if (numChunks <= 1) {
+            return sortedOrder(words);
+        }
+        int longest = 0;
+        for (String word : words) {
+            longest = Math.max(longest, word.length());
+        }
+        int[] order = new int[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] next = new int[words.length];
+        // digits[i] is the bucket of the word at order[i] in this pass
+        int[] digits = new int[words.length];
+        // counts[chunk][b] is the number of words of the chunk in bucket b,
+        // and then where the chunk's first word in bucket b goes
+        int[][] counts = new int[numChunks][NUM_BUCKETS];
+
+        ForkJoinPool pool = new ForkJoinPool(numChunks);
+        try {
+            for (int position = longest - 1; position >= 0; position--) {
+                int[] from = order;
+                int[] to = next;
+                int pass = position;
+                List<Callable<Void>> countTasks = new ArrayList<>();
+                List<Callable<Void>> scatterTasks = new ArrayList<>();
+                for (int chunk = 0; chunk < numChunks; chunk++) {
+                    int[] chunkCounts = counts[chunk];
+                    int start = (int) ((long) words.length * chunk / numChunks);
+                    int end = (int) ((long) words.length * (chunk + 1) / numChunks);
+                    countTasks.add(() -> {
+                        Arrays.fill(chunkCounts, 0);
+                        for (int i = start; i < end; i++) {
+                            digits[i] = bucket(words[from[i]], pass);
+                            chunkCounts[digits[i]]++;
+                        }
+                        return null;
+                    });
+                    scatterTasks.add(() -> {
+                        for (int i = start; i < end; i++) {
+                            to[chunkCounts[digits[i]]++] = from[i];
+                        }
+                        return null;
+                    });
+                }
+                runAll(pool, countTasks);
+                int offset = 0;
+                for (int b = 0; b < NUM_BUCKETS; b++) {
+                    for (int chunk = 0; chunk < numChunks; chunk++) {
+                        int count = counts[chunk][b];
+                        counts[chunk][b] = offset;
+                        offset += count;
+                    }
+                }
+                runAll(pool, scatterTasks);
+                order = to;
+                next = from;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return order;
+    }
+
+    /**
+    * Runs the tasks on pool and waits for all of them, rethrowing the
+    * first exception one of them threw.
+    */
+    private static void runAll(ForkJoinPool pool, List<Callable<Void>> tasks) {
+        for (Future<Void> result : pool.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+    * Sorts the words with most significant digit radix sort: the words are
+    * split into buckets by their first letter, then each bucket holding more
+    * than one word is split by its second letter, and so on. Words that end
+    * at a position are already in place and are not looked at again, and
+    * buckets of at most INSERTION_CUTOFF words are finished with insertion
+    * sort, so the work is about the total length of the prefixes that tell
+    * the words apart rather than the number of words times the longest
+    * word. This function doesn't change the passed in word list; it returns
+    * a new list.
+    *
+    * @param words A list of words. Each word contains only lower case letters in a-z.
+    * @return A list with the same words as the input argument, in sorted order
+    */
+    public static List<String> msdRadixSort(List<String> words) {
+        String[] array = words.toArray(new String[0]);
+        msdSort(array, new String[array.length], 0, array.length, 0);
+        return new ArrayList<>(Arrays.asList(array));
+    }
+
+    /**
+    * Sorts words[from] to words[to - 1], which all share their first
+    * position characters, by the characters from position on.
+    * @param aux scratch space at least as long as words
+    */
+    private static void msdSort(String[] words, String[] aux, int from, int to, int position) {
+        if (to - from <= INSERTION_CUTOFF) {
+            insertionSort(words, from, to, position);
+            return;
+        }
+        // counts[b + 1] counts bucket b, so after the prefix sum counts[b]
+        // is where bucket b starts
+        int[] counts = new int[NUM_BUCKETS + 1];
+        for (int i = from; i < to; i++) {
+            counts[bucket(words[i], position) + 1]++;
+        }
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            counts[b + 1] += counts[b];
+        }
+        int[] starts = counts.clone();
+        for (int i = from; i < to; i++) {
+            aux[counts[bucket(words[i], position)]++] = words[i];
+        }
+        System.arraycopy(aux, 0, words, from, to - from);
+        // Bucket 0 holds the words that end here; they are all equal
+        for (int b = 1; b < NUM_BUCKETS; b++) {
+            if (starts[b + 1] - starts[b] > 1) {
+                msdSort(words, aux, from + starts[b], from + starts[b + 1], position + 1);
+            }
+        }
+    }
+
+    /**
+    * Sorts words[from] to words[to - 1] with insertion sort, comparing only
+    * the characters from position on since the ones before it are equal.
+    */
+    private static void insertionSort(String[] words, int from, int to, int position) {
+        for (int i = from + 1; i < to; i++) {
+            String word = words[i];
+            int j = i;
+            while (j > from && lessFrom(word, words[j - 1], position)) {
+                words[j] = words[j - 1];
+                j--;
+            }
+            words[j] = word;
+        }
+    }
+
+    /**
+    * Returns true if a comes before b, looking only at the characters from
+    * position on.
+    */
+    private static boolean lessFrom(String a, String b, int position) {
+        int end = Math.min(a.length(), b.length());
+        for (int i = position; i < end; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return a.charAt(i) < b.charAt(i);
+            }
+        }
+        return a.length() < b.length();
+    }
+
+    /**
+    * Sorts the lines of inputFile into outputFile, lowercased, without
+    * creating a String per line. The file is memory-mapped read-only and
+    * the lines are recorded only as offsets and lengths into the mapping.
+    * The offsets are sorted with the same MSD radix sort as msdRadixSort,
+    * by unsigned byte value with ASCII letters lowercased as they are read,
+    * and the sorted lines are copied from the mapping to the output through
+    * one reused byte array, where they are lowercased. Only ASCII letters
+    * are lowercased; other bytes, including UTF-8 sequences, sort by their
+    * byte values, which for UTF-8 is code point order. Lines may end in
+    * "\n" or "\r\n"; every output line ends in "\n".
+    *
+    * @param inputFile a file of words, one per line
+    * @param outputFile the file to write the sorted lines to
+    * @throws IOException if a file cannot be read or written, or inputFile
+    * holds Integer.MAX_VALUE bytes or more, too many to index with an int
+    */
+    public static void sortFile(String inputFile, String outputFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Offsets up to and including size must fit in an int
+            if (size >= Integer.MAX_VALUE) {
+                throw new IOException(inputFile + " is too large to sort in memory.");
+            }
+            ByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // Find the lines
+            int[] starts = new int[1024];
+            int[] lengths = new int[1024];
+            int numLines = 0;
+            int lineStart = 0;
+            int end = (int) size;
+            for (int i = 0; i <= end; i++) {
+                if (i == end || text.get(i) == '\n') {
+                    if (i == end && lineStart == end) {
+                        break;
+                    }
+                    if (numLines == starts.length) {
+                        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, numLines * 2L);
+                        starts = Arrays.copyOf(starts, capacity);
+                        lengths = Arrays.copyOf(lengths, capacity);
+                    }
+                    int lineEnd = i > lineStart && text.get(i - 1) == '\r' ? i - 1 : i;
+                    starts[numLines] = lineStart;
+                    lengths[numLines] = lineEnd - lineStart;
+                    numLines++;
+                    lineStart = i + 1;
+                }
+            }
+
+            int[] order = new int[numLines];
+            for (int i = 0; i < numLines; i++) {
+                order[i] = i;
+            }
+            msdSortLines(text, starts, lengths, order, new int[numLines], 0, numLines, 0);
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 16)) {
+                ByteBuffer line = text.duplicate();
+                byte[] bytes = new byte[256];
+                for (int index : order) {
+                    int length = lengths[index];
+                    if (length + 1 > bytes.length) {
+                        bytes = new byte[Math.max(length + 1, bytes.length * 2)];
+                    }
+                    line.position(starts[index]);
+                    line.get(bytes, 0, length);
+                    for (int i = 0; i < length; i++) {
+                        bytes[i] = (byte) lowerCase(bytes[i]);
+                    }
+                    bytes[length] = '\n';
+                    out.write(bytes, 0, length + 1);
+                }
+            }
+        }
+    }
+
+    /**
+    * Sorts order[from] to order[to - 1], line numbers whose lines all share
+    * their first position bytes, by the bytes from position on. This is
+    * msdSort for lines held as offsets into text.
+    * @param aux scratch space at least as long as order
+    */
+    private static void msdSortLines(ByteBuffer text, int[] starts, int[] lengths, int[] order, int[] aux,
+            int from, int to, int position) {
+        if (to - from <= INSERTION_CUTOFF) {
+            for (int i = from + 1; i < to; i++) {
+                int line = order[i];
+                int j = i;
+                while (j > from && lineLessFrom(text, starts, lengths, line, order[j - 1], position)) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = line;
+            }
+            return;
+        }
+        // Bucket 0 is for lines that end before position, 1 + b for byte b
+        int[] counts = new int[NUM_BYTE_BUCKETS + 1];
+        for (int i = from; i < to; i++) {
+            counts[byteBucket(text, starts, lengths, order[i], position) + 1]++;
+        }
+        for (int b = 0; b < NUM_BYTE_BUCKETS; b++) {
+            counts[b + 1] += counts[b];
+        }
+        int[] bucketStarts = counts.clone();
+        for (int i = from; i < to; i++) {
+            aux[counts[byteBucket(text, starts, lengths, order[i], position)]++] = order[i];
+        }
+        System.arraycopy(aux, 0, order, from, to - from);
+        for (int b = 1; b < NUM_BYTE_BUCKETS; b++) {
+            if (bucketStarts[b + 1] - bucketStarts[b] > 1) {
+                msdSortLines(text, starts, lengths, order, aux, from + bucketStarts[b],
+                        from + bucketStarts[b + 1], position + 1);
+            }
+        }
+    }
+
+    private static int byteBucket(ByteBuffer text, int[] starts, int[] lengths, int line, int position) {
+        if (position >= lengths[line]) {
+            return 0;
+        }
+        return 1 + lowerCase(text.get(starts[line] + position));
+    }
+
+    /**
+    * Returns b as an unsigned value, with ASCII upper case letters changed
+    * to lower case.
+    */
+    private static int lowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b & 0xFF;
+    }
+
+    /**
+    * Returns true if line a comes before line b, looking only at the bytes
+    * from position on.
+    */
+    private static boolean lineLessFrom(ByteBuffer text, int[] starts, int[] lengths, int a, int b, int position) {
+        int end = Math.min(lengths[a], lengths[b]);
+        for (int i = position; i < end; i++) {
+            int byteA = lowerCase(text.get(starts[a] + i));
+            int byteB = lowerCase(text.get(starts[b] + i));
+            if (byteA != byteB) {
+                return byteA < byteB;
+            }
+        }
+        return lengths[a] < lengths[b];
+    }
+
+    /**
+    * Returns the bucket of the character at position in word: 0 past the
+    * end of the word, 1 for 'a', ..., 26 for 'z'.
+    * @throws IllegalArgumentException if the character is not in a-z
+    */
+    private static int bucket(String word, int position) {
+        if (position >= word.length()) {
+            return 0;
+        }
+        int bucket = word.charAt(position) - 96;
+        if (bucket < 1 || bucket >= NUM_BUCKETS) {
+            throw new IllegalArgumentException("Not a lower case word: " + word);
+        }
+        return bucket;
+    }
+
     /**
     * Create numBuckets buckets, represented by a list of lists.
     * @param numBuckets the number of buckets to create
@@ -173,18 +753,76 @@ public class RadixSort {
       // Feel free to modify main and add more testing code.
       List<String> wordList = new ArrayList<>();
       List<String> sortedList = new ArrayList<>();
-      if (args.length == 1) {
-          wordList = loadWords(args[0]);
-          // Uncomment the line below after you've implemented loadWords()
-          Collections.shuffle(wordList);
-          System.out.println("--- Before radixSort ---\n");
-          printWordList(wordList);
-          sortedList = radixSort(wordList);
-          System.out.println("\n--- After radixSort ---\n");
-          printWordList(sortedList);
-
+      String usage = "Usage: java RadixSort [filename] [--sort=lsd|counting|msd|parallel|alphabet] [--threads=<n>]\n"
+              + "       java RadixSort [filename] --out=<sorted file>";
+      if (args.length == 0) {
+          System.out.println(usage);
+          return;
+      }
+      String sort = "lsd";
+      boolean sortChosen = false;
+      int threads = Runtime.getRuntime().availableProcessors();
+      boolean threadsChosen = false;
+      String outFile = null;
+      for (int i = 1; i < args.length; i++) {
+          if (args[i].startsWith("--sort=")) {
+              sort = args[i].substring("--sort=".length());
+              sortChosen = true;
+          } else if (args[i].startsWith("--threads=")) {
+              threadsChosen = true;
+              try {
+                  threads = Integer.parseInt(args[i].substring("--threads=".length()));
+              } catch (NumberFormatException e) {
+                  threads = -1;
+              }
+              if (threads <= 0) {
+                  System.out.println("Invalid argument " + args[i] + ". The number of threads must be a positive integer.");
+                  return;
+              }
+          } else if (args[i].startsWith("--out=")) {
+              outFile = args[i].substring("--out=".length());
+          } else {
+              System.out.println(usage);
+              return;
+          }
+      }
+      if (outFile != null && (sortChosen || threadsChosen)) {
+          // The file sort has its own byte-based algorithm and one thread
+          System.out.println(usage);
+          return;
+      }
+      if (!sort.equals("lsd") && !sort.equals("counting") && !sort.equals("msd") && !sort.equals("parallel")
+              && !sort.equals("alphabet")) {
+          System.out.println("Unknown sort " + sort + ". Please choose lsd, counting, msd, parallel or alphabet.");
+          return;
+      }
+      if (outFile != null) {
+          // Sorts file to file without loading the words as Strings
+          try {
+              sortFile(args[0], outFile);
+          } catch (IOException e) {
+              System.err.println(e);
+              System.exit(1);
+          }
+          return;
+      }
+      wordList = loadWords(args[0]);
+      // Uncomment the line below after you've implemented loadWords()
+      Collections.shuffle(wordList);
+      System.out.println("--- Before radixSort ---\n");
+      printWordList(wordList);
+      if (sort.equals("counting")) {
+          sortedList = countingRadixSort(wordList);
+      } else if (sort.equals("msd")) {
+          sortedList = msdRadixSort(wordList);
+      } else if (sort.equals("alphabet")) {
+          sortedList = alphabetRadixSort(wordList);
+      } else if (sort.equals("parallel")) {
+          sortedList = parallelRadixSort(wordList, threads);
       } else {
-          System.out.println("Usage: java RadixSort [filename]");
+          sortedList = radixSort(wordList);
       }
+      System.out.println("\n--- After radixSort ---\n");
+      printWordList(sortedList);
     }
 }